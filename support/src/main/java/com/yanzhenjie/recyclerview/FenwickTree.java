@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import java.util.Arrays;
+
+/**
+ * Prefix sums of non-negative ints. It maps an index to the sum before it and a sum back to the index, such as a parent
+ * to the flat position of the parent and a flat position to the parent which contains it, both are O(log n). The sum of
+ * all values is kept along with the updates, it is O(1).
+ *
+ * <p>Setting a value is O(log n), but inserting or removing a value is a structural change: the values after the index
+ * are moved and the nodes after the index are rebuilt, so it is O(n - index), O(n) in the worst case. The nodes before
+ * the index are kept, so a change near the end, such as appending parents, is cheap.</p>
+ */
+final class FenwickTree {
+
+    private int[] mValues = new int[0];
+    private int[] mTree = new int[1];
+    private int mSize;
+    private int mSum;
+
+    /**
+     * Build the tree from the values, it is O(n).
+     */
+    public void build(int[] values, int size) {
+        if (mValues.length < size) {
+            mValues = new int[size];
+            mTree = new int[size + 1];
+        }
+        System.arraycopy(values, 0, mValues, 0, size);
+        mSize = size;
+        mSum = 0;
+        for (int i = 0; i < size; i++) {
+            mSum += values[i];
+        }
+        rebuildFrom(0);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int get(int index) {
+        return mValues[index];
+    }
+
+    /**
+     * Set the value of the index.
+     */
+    public void set(int index, int value) {
+        if (value < 0) throw new IllegalArgumentException("The value cannot be negative: " + value);
+        int delta = value - mValues[index];
+        if (delta == 0) return;
+
+        mValues[index] = value;
+        mSum += delta;
+        for (int i = index + 1; i <= mSize; i += i & -i) {
+            mTree[i] += delta;
+        }
+    }
+
+    /**
+     * Insert the value at the index, it is O(n - index).
+     */
+    public void insert(int index, int value) {
+        insert(index, value, 1);
+    }
+
+    /**
+     * Insert the value at the index for the count times, it is O(n - index + count).
+     */
+    public void insert(int index, int value, int count) {
+        if (value < 0) throw new IllegalArgumentException("The value cannot be negative: " + value);
+        int rebuildIndex = index;
+        if (mSize + count > mValues.length) {
+            mValues = Arrays.copyOf(mValues, Math.max(16, Math.max(mSize * 2, mSize + count)));
+            mTree = new int[mValues.length + 1];
+            rebuildIndex = 0;
+        }
+        System.arraycopy(mValues, index, mValues, index + count, mSize - index);
+        Arrays.fill(mValues, index, index + count, value);
+        mSize += count;
+        mSum += value * count;
+        rebuildFrom(rebuildIndex);
+    }
+
+    /**
+     * Remove the value of the index, it is O(n - index).
+     */
+    public void remove(int index) {
+        remove(index, 1);
+    }
+
+    /**
+     * Remove the count values from the index, it is O(n - index).
+     */
+    public void remove(int index, int count) {
+        for (int i = index; i < index + count; i++) {
+            mSum -= mValues[i];
+        }
+        System.arraycopy(mValues, index + count, mValues, index, mSize - index - count);
+        mSize -= count;
+        rebuildFrom(index);
+    }
+
+    /**
+     * Get the sum of the values before the index.
+     */
+    public int prefixSum(int index) {
+        int sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += mTree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Get the sum of all values.
+     */
+    public int sum() {
+        return mSum;
+    }
+
+    /**
+     * Find the index whose range contains the sum, the range of an index is from the sum before it to the sum after
+     * it.
+     *
+     * @return the index, or the size if the sum is not less than the sum of all values.
+     */
+    public int find(int sum) {
+        int index = 0;
+        for (int step = Integer.highestOneBit(Math.max(mSize, 1)); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next <= mSize && mTree[next] <= sum) {
+                index = next;
+                sum -= mTree[next];
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Rebuild the nodes after the index, the nodes before it only cover the values before it, so they are kept.
+     */
+    private void rebuildFrom(int index) {
+        Arrays.fill(mTree, index + 1, mSize + 1, 0);
+        // The kept nodes whose parents are rebuilt are the nodes of the prefix sum of the index.
+        for (int i = index; i > 0; i -= i & -i) {
+            int parent = i + (i & -i);
+            if (parent <= mSize) mTree[parent] += mTree[i];
+        }
+        for (int i = index + 1; i <= mSize; i++) {
+            mTree[i] += mValues[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= mSize) mTree[parent] += mTree[i];
+        }
+    }
+}
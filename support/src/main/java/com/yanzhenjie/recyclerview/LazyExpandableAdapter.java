@@ -0,0 +1,362 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@link ExpandableAdapter} whose child items are loaded when the parent is expanded, such as from a server. The
+ * children are loaded page by page, the next page is loaded when the last children of the loaded pages are bound, and
+ * some placeholder child items are shown at the end of the parent while a page is loading. Collapsing the parent
+ * cancels the loading page.
+ *
+ * <p>The adapter counts the loaded child items of each parent. When a page arrives, the implementation of
+ * {@link #loadChildren(int, LoadRequest)} stores the children of the page unless {@link LoadRequest#isCancelled()},
+ * and calls {@link LoadRequest#deliver(int, boolean)} on the main thread.</p>
+ */
+public abstract class LazyExpandableAdapter<VH extends ExpandableAdapter.ViewHolder> extends ExpandableAdapter<VH> {
+
+    private static final int TYPE_PLACEHOLDER = 30000000;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int DEFAULT_PLACEHOLDER_COUNT = 3;
+    private static final int DEFAULT_PREFETCH_DISTANCE = 5;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * The states of the parents which have been expanded, in the order of their parent positions. Each state keeps its
+     * parent position, which is moved in place when a parent is inserted or removed before it.
+     */
+    private final List<ChildState> mChildStates = new ArrayList<>();
+    private int mPageSize = DEFAULT_PAGE_SIZE;
+    private int mPlaceholderCount = DEFAULT_PLACEHOLDER_COUNT;
+    private int mPrefetchDistance = DEFAULT_PREFETCH_DISTANCE;
+
+    /**
+     * Set the number of child items which are requested at a time.
+     */
+    public final void setPageSize(@IntRange(from = 1) int pageSize) {
+        if (pageSize < 1) throw new IllegalArgumentException("The page size must be positive: " + pageSize);
+        this.mPageSize = pageSize;
+    }
+
+    /**
+     * Set the number of placeholder child items which are shown while a page is loading.
+     */
+    public final void setPlaceholderCount(@IntRange(from = 0) int placeholderCount) {
+        this.mPlaceholderCount = placeholderCount;
+    }
+
+    /**
+     * Set how many child items before the last loaded child item the next page starts loading.
+     */
+    public final void setPrefetchDistance(@IntRange(from = 0) int prefetchDistance) {
+        this.mPrefetchDistance = prefetchDistance;
+    }
+
+    /**
+     * Load a page of the child items of the parent, it is called on the main thread.
+     *
+     * @param parentPosition position of parent item.
+     * @param request the page, deliver the result to it.
+     */
+    public abstract void loadChildren(int parentPosition, @NonNull LoadRequest request);
+
+    /**
+     * Get the number of the loaded child items of the parent.
+     *
+     * @param parentPosition position of parent item.
+     */
+    public final int loadedChildCount(int parentPosition) {
+        ChildState state = getChildState(parentPosition);
+        return state == null ? 0 : state.mLoadedCount;
+    }
+
+    /**
+     * The child item is a placeholder of the loading page.
+     *
+     * @param parentPosition position of parent item.
+     * @param childPosition position of child item.
+     */
+    public final boolean isPlaceholder(int parentPosition, int childPosition) {
+        return childPosition >= loadedChildCount(parentPosition);
+    }
+
+    @Override
+    public final int childItemCount(int parentPosition) {
+        ChildState state = getChildState(parentPosition);
+        if (state == null) return 0;
+        return state.mLoadedCount + (state.mRequest == null ? 0 : mPlaceholderCount);
+    }
+
+    @Override
+    public final int childItemViewType(int parentPosition, int childPosition) {
+        if (isPlaceholder(parentPosition, childPosition)) return placeholderViewType(parentPosition);
+        return loadedChildViewType(parentPosition, childPosition);
+    }
+
+    /**
+     * Get the view type of the placeholder child items.
+     *
+     * @param parentPosition position of parent item.
+     *
+     * @return view type.
+     */
+    public int placeholderViewType(int parentPosition) {
+        return TYPE_PLACEHOLDER;
+    }
+
+    /**
+     * Get the view type of the loaded child item.
+     *
+     * @param parentPosition position of parent item.
+     * @param childPosition position of child item.
+     *
+     * @return view type.
+     */
+    public int loadedChildViewType(int parentPosition, int childPosition) {
+        return super.childItemViewType(parentPosition, childPosition);
+    }
+
+    @Override
+    public final void bindChildHolder(@NonNull VH holder, int parentPosition, int position,
+        @NonNull List<Object> payloads) {
+        ChildState state = getChildState(parentPosition);
+        if (state == null || position >= state.mLoadedCount) {
+            bindPlaceholderHolder(holder, parentPosition, position);
+            return;
+        }
+
+        if (state.mRequest == null && state.mHasMore && !state.mLoadPosted &&
+            position >= state.mLoadedCount - 1 - mPrefetchDistance) {
+            // The items cannot be changed while they are bound.
+            state.mLoadPosted = true;
+            mHandler.post(state);
+        }
+        super.bindChildHolder(holder, parentPosition, position, payloads);
+    }
+
+    /**
+     * Display the placeholder child item.
+     *
+     * @param holder child holder.
+     * @param parentPosition position of parent item.
+     * @param position position of child item.
+     */
+    public void bindPlaceholderHolder(@NonNull VH holder, int parentPosition, int position) {
+    }
+
+    @Override
+    void onParentExpanded(int parentPosition) {
+        int index = indexOfChildState(parentPosition);
+        ChildState state;
+        if (index >= 0) {
+            state = mChildStates.get(index);
+        } else {
+            state = new ChildState(parentPosition);
+            mChildStates.add(~index, state);
+        }
+        if (state.mRequest == null && state.mHasMore && state.mLoadedCount == 0) {
+            startLoading(parentPosition, state);
+        }
+    }
+
+    @Override
+    void onParentCollapsed(int parentPosition) {
+        ChildState state = getChildState(parentPosition);
+        if (state != null) state.cancel();
+    }
+
+    @Override
+    void onParentInserted(int parentPosition) {
+        int index = indexOfChildState(parentPosition);
+        shiftChildStates(index >= 0 ? index : ~index, 1);
+    }
+
+    @Override
+    void onParentRemoved(int parentPosition) {
+        int index = indexOfChildState(parentPosition);
+        if (index >= 0) {
+            // The placeholders are removed with the parent.
+            ChildState state = mChildStates.remove(index);
+            state.cancel();
+            state.mParentPosition = RecyclerView.NO_POSITION;
+        } else {
+            index = ~index;
+        }
+        shiftChildStates(index, -1);
+    }
+
+    /**
+     * Move the parent positions of the states from the index to the end, the order of the states is not changed.
+     */
+    private void shiftChildStates(int start, int offset) {
+        for (int i = start; i < mChildStates.size(); i++) {
+            mChildStates.get(i).mParentPosition += offset;
+        }
+    }
+
+    private ChildState getChildState(int parentPosition) {
+        int index = indexOfChildState(parentPosition);
+        return index >= 0 ? mChildStates.get(index) : null;
+    }
+
+    /**
+     * Find the state of the parent by binary search.
+     *
+     * @return the index of the state, or the bitwise complement of the index where it would be inserted.
+     */
+    private int indexOfChildState(int parentPosition) {
+        int low = 0;
+        int high = mChildStates.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middlePosition = mChildStates.get(middle).mParentPosition;
+            if (middlePosition < parentPosition) {
+                low = middle + 1;
+            } else if (middlePosition > parentPosition) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return ~low;
+    }
+
+    private void startLoading(int parentPosition, ChildState state) {
+        LoadRequest request = new LoadRequest(state, state.mLoadedCount, mPageSize);
+        state.mRequest = request;
+        notifyChildRangeInserted(parentPosition, state.mLoadedCount, mPlaceholderCount);
+        loadChildren(parentPosition, request);
+    }
+
+    private void deliver(LoadRequest request, int childCount) {
+        ChildState state = request.mState;
+        int parentPosition = state.mParentPosition;
+        // The index counts the placeholders before the change, so the notification below moves it only once.
+        if (parentPosition != RecyclerView.NO_POSITION) ensureIndex();
+
+        int oldCount = state.mLoadedCount;
+        state.mRequest = null;
+        state.mLoadedCount += childCount;
+        if (parentPosition == RecyclerView.NO_POSITION) return;
+
+        // Replace the placeholders with the loaded child items, the difference of the count is one range.
+        int changedCount = Math.min(childCount, mPlaceholderCount);
+        notifyChildRangeChanged(parentPosition, oldCount, changedCount);
+        if (childCount > mPlaceholderCount) {
+            notifyChildRangeInserted(parentPosition, oldCount + mPlaceholderCount, childCount - mPlaceholderCount);
+        } else if (childCount < mPlaceholderCount) {
+            notifyChildRangeRemoved(parentPosition, oldCount + childCount, mPlaceholderCount - childCount);
+        }
+    }
+
+    private final class ChildState implements Runnable {
+
+        private int mParentPosition;
+        private int mLoadedCount;
+        private boolean mHasMore = true;
+        private LoadRequest mRequest;
+        private boolean mLoadPosted;
+
+        private ChildState(int parentPosition) {
+            this.mParentPosition = parentPosition;
+        }
+
+        @Override
+        public void run() {
+            mLoadPosted = false;
+            if (mParentPosition == RecyclerView.NO_POSITION || mRequest != null || !mHasMore) return;
+            if (isExpanded(mParentPosition)) startLoading(mParentPosition, this);
+        }
+
+        private void cancel() {
+            if (mRequest != null) {
+                mRequest.mCancelled = true;
+                mRequest = null;
+            }
+        }
+    }
+
+    /**
+     * A page of child items.
+     */
+    public final class LoadRequest {
+
+        private final ChildState mState;
+        private final int mOffset;
+        private final int mLimit;
+        private boolean mCancelled;
+        private boolean mFinished;
+
+        private LoadRequest(ChildState state, int offset, int limit) {
+            this.mState = state;
+            this.mOffset = offset;
+            this.mLimit = limit;
+        }
+
+        /**
+         * Get the position of the first child item of the page.
+         */
+        public int getOffset() {
+            return mOffset;
+        }
+
+        /**
+         * Get the maximum number of child items of the page.
+         */
+        public int getLimit() {
+            return mLimit;
+        }
+
+        /**
+         * The parent has been collapsed or removed, the result of the page is not needed.
+         */
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * Deliver the loaded child items, the data of them must be stored before, it must be called on the main
+         * thread. It is ignored if the request is cancelled.
+         *
+         * @param childCount number of the loaded child items.
+         * @param hasMore the parent has more child items after the page.
+         */
+        public void deliver(@IntRange(from = 0) int childCount, boolean hasMore) {
+            if (mCancelled || mFinished) return;
+            mFinished = true;
+            mState.mHasMore = hasMore;
+            LazyExpandableAdapter.this.deliver(this, childCount);
+        }
+
+        /**
+         * The page cannot be loaded, the placeholders are removed, and the page is requested again when the last
+         * child item is bound or the parent is expanded again.
+         */
+        public void fail() {
+            deliver(0, mState.mHasMore);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+/**
+ * A {@link SwipeMenuCreator} whose menus depend on some payloads of the partial update.
+ *
+ * <p>The menus are not created again when the item is bound with payloads, unless the creator is a {@link
+ * PayloadSwipeMenuCreator} and one of the payloads affects the menus.</p>
+ */
+public interface PayloadSwipeMenuCreator extends SwipeMenuCreator {
+
+    /**
+     * Whether the payload affects the menus.
+     *
+     * @param payload one of the payloads that the item is notified with.
+     *
+     * @return true means the menus will be created again, otherwise false.
+     */
+    boolean isMenuPayload(Object payload);
+}
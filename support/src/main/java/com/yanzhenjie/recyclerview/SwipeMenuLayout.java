@@ -17,6 +17,13 @@ package com.yanzhenjie.recyclerview;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.FloatRange;
+import android.support.annotation.IntDef;
+import android.support.v4.view.NestedScrollingChild2;
+import android.support.v4.view.NestedScrollingChildHelper;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.view.Gravity;
@@ -24,29 +31,55 @@ import android.view.MotionEvent;
 import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
+import android.view.ViewParent;
+import android.view.animation.AnimationUtils;
 import android.widget.FrameLayout;
 import android.widget.OverScroller;
 import android.widget.TextView;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
 /**
  * Created by Yan Zhenjie on 2016/7/27.
  */
-public class SwipeMenuLayout extends FrameLayout implements Controller {
+public class SwipeMenuLayout extends FrameLayout implements Controller, NestedScrollingChild2 {
 
     public static final int DEFAULT_SCROLLER_DURATION = 200;
 
+    @IntDef({REVEAL_SCROLL, REVEAL_TRANSLATION})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface RevealMode {}
+
+    /**
+     * Reveal the menu by scrolling the layout, the content is redrawn on every frame.
+     */
+    public static final int REVEAL_SCROLL = 0;
+    /**
+     * Reveal the menu by translating the content and the menus, the content is not redrawn while it moves.
+     */
+    public static final int REVEAL_TRANSLATION = 1;
+
     private int mLeftViewId = 0;
     private int mContentViewId = 0;
     private int mRightViewId = 0;
 
     private float mOpenPercent = 0.5f;
     private int mScrollerDuration = DEFAULT_SCROLLER_DURATION;
+    private int mRevealMode = REVEAL_SCROLL;
+    private boolean mDragLayerEnabled;
+    private int mContentLayerType = LAYER_TYPE_NONE;
+    private boolean mDragLayerPromoted;
+    private int mTranslationOffset;
+    private boolean mSettlePosted;
+    private final Spring mSpring = new Spring();
+    private boolean mSpringEnabled;
+    private float mReleaseVelocity;
+    private boolean mLazyMenuMeasure;
+    private boolean mMenusMeasured;
 
-    private int mScaledTouchSlop;
+    private GestureArbiter mGestureArbiter;
     private int mLastX;
-    private int mLastY;
-    private int mDownX;
-    private int mDownY;
     private View mContentView;
     private LeftHorizontal mSwipeLeftHorizontal;
     private RightHorizontal mSwipeRightHorizontal;
@@ -55,9 +88,13 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
     private boolean mDragging;
     private boolean swipeEnable = true;
     private OverScroller mScroller;
+    private SwipeRecyclerView mRecyclerView;
     private VelocityTracker mVelocityTracker;
     private int mScaledMinimumFlingVelocity;
     private int mScaledMaximumFlingVelocity;
+    private final NestedScrollingChildHelper mChildHelper;
+    private final int[] mScrollConsumed = new int[2];
+    private final int[] mScrollOffset = new int[2];
 
 
     public SwipeMenuLayout(Context context) {
@@ -79,11 +116,14 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
         typedArray.recycle();
 
         ViewConfiguration configuration = ViewConfiguration.get(getContext());
-        mScaledTouchSlop = configuration.getScaledTouchSlop();
+        mGestureArbiter = new GestureArbiter(configuration.getScaledTouchSlop());
         mScaledMinimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
         mScaledMaximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
 
         mScroller = new OverScroller(getContext());
+
+        mChildHelper = new NestedScrollingChildHelper(this);
+        setNestedScrollingEnabled(true);
     }
 
     @Override
@@ -110,6 +150,49 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
         }
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        ViewParent parent = getParent();
+        while (parent != null && !(parent instanceof SwipeRecyclerView)) {
+            parent = parent.getParent();
+        }
+        mRecyclerView = (SwipeRecyclerView)parent;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(mSettleRunnable);
+        mSettlePosted = false;
+        demoteDragLayer();
+        mChildHelper.onDetachedFromWindow();
+        mRecyclerView = null;
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    /**
+     * Get the tracker of the owner {@link SwipeRecyclerView}, or the own tracker if it is used alone, the tracker is
+     * cleared at the end of the gesture rather than recycled.
+     */
+    private VelocityTracker getVelocityTracker() {
+        if (mRecyclerView != null) return mRecyclerView.obtainVelocityTracker();
+        if (mVelocityTracker == null) mVelocityTracker = VelocityTracker.obtain();
+        return mVelocityTracker;
+    }
+
+    /**
+     * Get the arbiter of the owner {@link SwipeRecyclerView}, which has classified the gesture before the event
+     * reaches here, or the own arbiter if it is used alone.
+     */
+    private GestureArbiter getGestureArbiter() {
+        if (mRecyclerView != null) return mRecyclerView.getGestureArbiter();
+        return mGestureArbiter;
+    }
+
     /**
      * Set whether open swipe. Default is true.
      *
@@ -129,7 +212,8 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
     }
 
     /**
-     * Set open percentage.
+     * Set open percentage, the menu released beyond the percent of the gap between two snap points settles at the
+     * farther one.
      *
      * @param openPercent such as 0.5F.
      */
@@ -155,6 +239,100 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
         this.mScrollerDuration = scrollerDuration;
     }
 
+    /**
+     * Set the way to reveal the menu.
+     *
+     * @param revealMode {@link #REVEAL_SCROLL} or {@link #REVEAL_TRANSLATION}, default is {@link #REVEAL_SCROLL}.
+     */
+    public void setRevealMode(@RevealMode int revealMode) {
+        if (mRevealMode == revealMode) return;
+
+        int offset = getSwipeOffset();
+        applySwipeOffset(0);
+        mRevealMode = revealMode;
+        applySwipeOffset(offset);
+    }
+
+    /**
+     * Get the way to reveal the menu.
+     *
+     * @return {@link #REVEAL_SCROLL} or {@link #REVEAL_TRANSLATION}.
+     */
+    @RevealMode
+    public int getRevealMode() {
+        return mRevealMode;
+    }
+
+    /**
+     * Set whether the content view is promoted to a hardware layer while it is dragged and settled, only works in
+     * {@link #REVEAL_TRANSLATION} mode. Default is false.
+     *
+     * @param enabled true means promote, otherwise false.
+     */
+    public void setDragLayerEnabled(boolean enabled) {
+        this.mDragLayerEnabled = enabled;
+        if (!enabled) demoteDragLayer();
+    }
+
+    private void promoteDragLayer() {
+        if (!mDragLayerEnabled || mDragLayerPromoted || mRevealMode != REVEAL_TRANSLATION) return;
+        if (mContentView == null) return;
+        mDragLayerPromoted = true;
+        mContentLayerType = mContentView.getLayerType();
+        mContentView.setLayerType(LAYER_TYPE_HARDWARE, null);
+    }
+
+    private void demoteDragLayer() {
+        if (!mDragLayerPromoted) return;
+        mDragLayerPromoted = false;
+        mContentView.setLayerType(mContentLayerType, null);
+    }
+
+    /**
+     * Set whether the menu is settled by a spring, which starts with the velocity of the finger when it is released.
+     * Default is false, the menu is settled by a scroller in a fixed duration.
+     *
+     * @param enabled true means spring, otherwise false.
+     */
+    public void setSpringEnabled(boolean enabled) {
+        if (!enabled) mSpring.cancel();
+        this.mSpringEnabled = enabled;
+    }
+
+    /**
+     * Set the spring that settles the menu.
+     *
+     * @param stiffness stiffness of spring, such as 1500F.
+     * @param dampingRatio damping ratio of spring, 1F means no bouncy, less than 1F means bouncy, it must be positive.
+     *
+     * @see #setSpringEnabled(boolean)
+     */
+    public void setSpring(@FloatRange(from = 0, fromInclusive = false) float stiffness,
+        @FloatRange(from = 0, fromInclusive = false) float dampingRatio) {
+        mSpring.setStiffness(stiffness);
+        mSpring.setDampingRatio(dampingRatio);
+    }
+
+    /**
+     * Set whether the menus are skipped in measure and layout while they are completely closed, they are measured when
+     * a drag starts or a menu is opened. Default is false.
+     *
+     * <p>When it is enabled, the height of the item is decided by the content view only.</p>
+     *
+     * @param lazyMenuMeasure true means skip, otherwise false.
+     */
+    public void setLazyMenuMeasure(boolean lazyMenuMeasure) {
+        if (mLazyMenuMeasure == lazyMenuMeasure) return;
+        this.mLazyMenuMeasure = lazyMenuMeasure;
+        requestLayout();
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        if (mRecyclerView == null) mGestureArbiter.onTouchEvent(ev);
+        return super.dispatchTouchEvent(ev);
+    }
+
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
         boolean isIntercepted = super.onInterceptTouchEvent(ev);
@@ -165,26 +343,24 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
         int action = ev.getAction();
         switch (action) {
             case MotionEvent.ACTION_DOWN: {
-                mDownX = mLastX = (int)ev.getX();
-                mDownY = (int)ev.getY();
+                mLastX = (int)ev.getX();
+                getVelocityTracker().clear();
                 return false;
             }
             case MotionEvent.ACTION_MOVE: {
-                int disX = (int)(ev.getX() - mDownX);
-                int disY = (int)(ev.getY() - mDownY);
-                return Math.abs(disX) > mScaledTouchSlop && Math.abs(disX) > Math.abs(disY);
+                return getGestureArbiter().isHorizontal();
             }
             case MotionEvent.ACTION_UP: {
                 boolean isClick = mSwipeCurrentHorizontal != null &&
-                    mSwipeCurrentHorizontal.isClickOnContentView(getWidth(), ev.getX());
-                if (isMenuOpen() && isClick) {
+                    mSwipeCurrentHorizontal.isClickOnContentView(getWidth(), getSwipeOffset(), ev.getX());
+                if (isSwiped() && isClick) {
                     smoothCloseMenu();
                     return true;
                 }
                 return false;
             }
             case MotionEvent.ACTION_CANCEL: {
-                if (!mScroller.isFinished()) mScroller.abortAnimation();
+                abortSettle();
                 return false;
             }
         }
@@ -197,24 +373,34 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
             return super.onTouchEvent(ev);
         }
 
-        if (mVelocityTracker == null) mVelocityTracker = VelocityTracker.obtain();
-        mVelocityTracker.addMovement(ev);
-        int dx;
-        int dy;
+        VelocityTracker velocityTracker = getVelocityTracker();
+        velocityTracker.addMovement(ev);
         int action = ev.getAction();
         switch (action) {
             case MotionEvent.ACTION_DOWN: {
                 mLastX = (int)ev.getX();
-                mLastY = (int)ev.getY();
                 break;
             }
             case MotionEvent.ACTION_MOVE: {
                 int disX = (int)(mLastX - ev.getX());
-                int disY = (int)(mLastY - ev.getY());
-                if (!mDragging && Math.abs(disX) > mScaledTouchSlop && Math.abs(disX) > Math.abs(disY)) {
+                if (!mDragging && getGestureArbiter().isHorizontal()) {
                     mDragging = true;
+                    ensureMenusMeasured();
+                    // The drag takes over the settle, which must not demote the drag layer in the middle of the drag.
+                    if (!mScroller.isFinished()) mScroller.forceFinished(true);
+                    mSpring.cancel();
+                    removeCallbacks(mSettleRunnable);
+                    mSettlePosted = false;
+                    promoteDragLayer();
+                    startNestedScroll(ViewCompat.SCROLL_AXIS_HORIZONTAL, ViewCompat.TYPE_TOUCH);
                 }
                 if (mDragging) {
+                    // The nested parent takes its part first, the menu takes the rest and hands the remainder back.
+                    int offsetX = 0;
+                    if (dispatchNestedPreScroll(disX, 0, mScrollConsumed, mScrollOffset, ViewCompat.TYPE_TOUCH)) {
+                        disX -= mScrollConsumed[0];
+                        offsetX += mScrollOffset[0];
+                    }
                     if (mSwipeCurrentHorizontal == null || shouldResetSwipe) {
                         if (disX < 0) {
                             if (mSwipeLeftHorizontal != null) {
@@ -230,46 +416,42 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
                             }
                         }
                     }
+                    int oldOffset = getSwipeOffset();
                     scrollBy(disX, 0);
-                    mLastX = (int)ev.getX();
-                    mLastY = (int)ev.getY();
+                    int consumedX = getSwipeOffset() - oldOffset;
+                    if (dispatchNestedScroll(consumedX, 0, disX - consumedX, 0, mScrollOffset,
+                        ViewCompat.TYPE_TOUCH)) {
+                        offsetX += mScrollOffset[0];
+                    }
+                    mLastX = (int)ev.getX() - offsetX;
                     shouldResetSwipe = false;
                 }
                 break;
             }
             case MotionEvent.ACTION_UP: {
-                dx = (int)(mDownX - ev.getX());
-                dy = (int)(mDownY - ev.getY());
                 mDragging = false;
-                mVelocityTracker.computeCurrentVelocity(1000, mScaledMaximumFlingVelocity);
-                int velocityX = (int)mVelocityTracker.getXVelocity();
+                velocityTracker.computeCurrentVelocity(1000, mScaledMaximumFlingVelocity);
+                int velocityX = (int)velocityTracker.getXVelocity();
                 int velocity = Math.abs(velocityX);
-                if (velocity > mScaledMinimumFlingVelocity) {
+                mReleaseVelocity = mSpringEnabled ? -velocityX : 0;
+                SwipeMenuView fullSwipeMenu = getFullSwipeMenu();
+                if (fullSwipeMenu != null) {
+                    smoothCloseMenu();
+                    fullSwipeMenu.performFullSwipe();
+                } else if (velocity > mScaledMinimumFlingVelocity && !dispatchNestedPreFling(-velocityX, 0)) {
+                    dispatchNestedFling(-velocityX, 0, mSwipeCurrentHorizontal != null);
                     if (mSwipeCurrentHorizontal != null) {
-                        int duration = getSwipeDuration(ev, velocity);
-                        if (mSwipeCurrentHorizontal instanceof RightHorizontal) {
-                            if (velocityX < 0) {
-                                smoothOpenMenu(duration);
-                            } else {
-                                smoothCloseMenu(duration);
-                            }
-                        } else {
-                            if (velocityX > 0) {
-                                smoothOpenMenu(duration);
-                            } else {
-                                smoothCloseMenu(duration);
-                            }
-                        }
-                        ViewCompat.postInvalidateOnAnimation(this);
+                        settleAtSnapPoint(velocityX, getSwipeDuration(ev, velocity));
+                        postSettleOnAnimation();
                     }
                 } else {
-                    judgeOpenClose(dx, dy);
+                    judgeOpenClose();
                 }
-                mVelocityTracker.clear();
-                mVelocityTracker.recycle();
-                mVelocityTracker = null;
-                if (Math.abs(mDownX - ev.getX()) > mScaledTouchSlop ||
-                    Math.abs(mDownY - ev.getY()) > mScaledTouchSlop || isLeftMenuOpen() || isRightMenuOpen()) {
+                mReleaseVelocity = 0;
+                if (!isSettling()) demoteDragLayer();
+                stopNestedScroll(ViewCompat.TYPE_TOUCH);
+                velocityTracker.clear();
+                if (!getGestureArbiter().isClick() || isLeftMenuOpen() || isRightMenuOpen()) {
                     ev.setAction(MotionEvent.ACTION_CANCEL);
                     super.onTouchEvent(ev);
                     return true;
@@ -278,12 +460,12 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
             }
             case MotionEvent.ACTION_CANCEL: {
                 mDragging = false;
-                if (!mScroller.isFinished()) {
-                    mScroller.abortAnimation();
+                stopNestedScroll(ViewCompat.TYPE_TOUCH);
+                velocityTracker.clear();
+                if (isSettling()) {
+                    abortSettle();
                 } else {
-                    dx = (int)(mDownX - ev.getX());
-                    dy = (int)(mDownY - ev.getY());
-                    judgeOpenClose(dx, dy);
+                    judgeOpenClose();
                 }
                 break;
             }
@@ -300,7 +482,7 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
      * @return finish duration.
      */
     private int getSwipeDuration(MotionEvent ev, int velocity) {
-        int sx = getScrollX();
+        int sx = getSwipeOffset();
         int dx = (int)(ev.getX() - sx);
         final int width = mSwipeCurrentHorizontal.getMenuWidth();
         final int halfWidth = width / 2;
@@ -323,25 +505,12 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
         return (float)Math.sin(f);
     }
 
-    private void judgeOpenClose(int dx, int dy) {
+    private void judgeOpenClose() {
         if (mSwipeCurrentHorizontal != null) {
-            if (Math.abs(getScrollX()) >=
-                (mSwipeCurrentHorizontal.getMenuView().getWidth() * mOpenPercent)) { // auto open
-                if (Math.abs(dx) > mScaledTouchSlop || Math.abs(dy) > mScaledTouchSlop) { // swipe up
-                    if (isMenuOpenNotEqual()) {
-                        smoothCloseMenu();
-                    } else {
-                        smoothOpenMenu();
-                    }
-                } else { // normal up
-                    if (isMenuOpen()) {
-                        smoothCloseMenu();
-                    } else {
-                        smoothOpenMenu();
-                    }
-                }
-            } else { // auto closeMenu
+            if (getGestureArbiter().isClick() && isSwiped()) { // normal up
                 smoothCloseMenu();
+            } else {
+                settleAtSnapPoint(0, mScrollerDuration);
             }
         }
     }
@@ -349,26 +518,133 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
     @Override
     public void scrollTo(int x, int y) {
         if (mSwipeCurrentHorizontal == null) {
-            super.scrollTo(x, y);
+            if (mRevealMode == REVEAL_TRANSLATION) {
+                applySwipeOffset(x);
+            } else {
+                super.scrollTo(x, y);
+            }
         } else {
             Horizontal.Checker checker = mSwipeCurrentHorizontal.checkXY(x, y);
             shouldResetSwipe = checker.shouldResetSwipe;
-            if (checker.x != getScrollX()) {
-                super.scrollTo(checker.x, checker.y);
+            if (checker.x != getSwipeOffset()) {
+                if (mRevealMode == REVEAL_TRANSLATION) {
+                    applySwipeOffset(checker.x);
+                } else {
+                    super.scrollTo(checker.x, checker.y);
+                }
             }
         }
     }
 
+    @Override
+    public void scrollBy(int x, int y) {
+        if (mRevealMode == REVEAL_TRANSLATION) {
+            scrollTo(mTranslationOffset + x, y);
+        } else {
+            super.scrollBy(x, y);
+        }
+    }
+
+    /**
+     * Get the offset of the menu, it is the same as {@link #getScrollX()} in {@link #REVEAL_SCROLL} mode.
+     */
+    private int getSwipeOffset() {
+        return mRevealMode == REVEAL_TRANSLATION ? mTranslationOffset : getScrollX();
+    }
+
+    private void applySwipeOffset(int offset) {
+        if (mRevealMode == REVEAL_TRANSLATION) {
+            mTranslationOffset = offset;
+            float translationX = -offset;
+            if (mContentView != null) mContentView.setTranslationX(translationX);
+            if (mSwipeLeftHorizontal != null) mSwipeLeftHorizontal.getMenuView().setTranslationX(translationX);
+            if (mSwipeRightHorizontal != null) mSwipeRightHorizontal.getMenuView().setTranslationX(translationX);
+        } else {
+            super.scrollTo(offset, 0);
+        }
+    }
+
     @Override
     public void computeScroll() {
+        if (!isFrameDriven() && computeSwipeOffset()) {
+            invalidate();
+        }
+    }
+
+    /**
+     * The translation and the spring are driven by the animation callback of every frame, the scroller is driven by
+     * {@link #computeScroll()}.
+     */
+    private boolean isFrameDriven() {
+        return mRevealMode == REVEAL_TRANSLATION || mSpringEnabled;
+    }
+
+    private boolean isSettling() {
+        return !mScroller.isFinished() || !mSpring.isFinished();
+    }
+
+    private void abortSettle() {
+        if (!mScroller.isFinished()) mScroller.abortAnimation();
+        mSpring.cancel();
+    }
+
+    /**
+     * Settle the menu to the target by the spring, the velocity of the released finger or the running spring is
+     * handed off to it.
+     */
+    private void startSpring(int target) {
+        if (!mScroller.isFinished()) mScroller.forceFinished(true);
+        float velocity = mReleaseVelocity != 0 ? mReleaseVelocity : mSpring.getVelocity();
+        mReleaseVelocity = 0;
+        mSpring.start(getSwipeOffset(), velocity, target, AnimationUtils.currentAnimationTimeMillis());
+    }
+
+    /**
+     * Move the menu to the current position of the scroller.
+     *
+     * @return true if the animation is not yet finished.
+     */
+    private boolean computeSwipeOffset() {
+        if (mSpringEnabled) {
+            if (mSpring.isFinished()) return false;
+            boolean running = mSpring.computeValue(AnimationUtils.currentAnimationTimeMillis());
+            scrollTo(Math.round(mSpring.getValue()), 0);
+            return running;
+        }
         if (mScroller.computeScrollOffset() && mSwipeCurrentHorizontal != null) {
             if (mSwipeCurrentHorizontal instanceof RightHorizontal) {
                 scrollTo(Math.abs(mScroller.getCurrX()), 0);
-                invalidate();
             } else {
                 scrollTo(-Math.abs(mScroller.getCurrX()), 0);
-                invalidate();
             }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * In {@link #REVEAL_TRANSLATION} mode the views are moved by their translation only, so nothing is redrawn.
+     */
+    private final Runnable mSettleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mSettlePosted = false;
+            if (isFrameDriven() && computeSwipeOffset()) {
+                postSettleOnAnimation();
+            } else {
+                demoteDragLayer();
+            }
+        }
+    };
+
+    private void postSettleOnAnimation() {
+        if (isFrameDriven()) {
+            if (!mSettlePosted) {
+                mSettlePosted = true;
+                ViewCompat.postOnAnimation(this, mSettleRunnable);
+            }
+        } else {
+            ViewCompat.postInvalidateOnAnimation(this);
         }
     }
 
@@ -387,12 +663,19 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
 
     @Override
     public boolean isLeftMenuOpen() {
-        return mSwipeLeftHorizontal != null && mSwipeLeftHorizontal.isMenuOpen(getScrollX());
+        return mSwipeLeftHorizontal != null && mSwipeLeftHorizontal.isMenuOpen(getSwipeOffset());
     }
 
     @Override
     public boolean isRightMenuOpen() {
-        return mSwipeRightHorizontal != null && mSwipeRightHorizontal.isMenuOpen(getScrollX());
+        return mSwipeRightHorizontal != null && mSwipeRightHorizontal.isMenuOpen(getSwipeOffset());
+    }
+
+    /**
+     * The content is moved from the closed position, the menu is fully or partly open, or it is settling.
+     */
+    boolean isSwiped() {
+        return getSwipeOffset() != 0;
     }
 
     @Override
@@ -402,12 +685,12 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
 
     @Override
     public boolean isLeftCompleteOpen() {
-        return mSwipeLeftHorizontal != null && !mSwipeLeftHorizontal.isCompleteClose(getScrollX());
+        return mSwipeLeftHorizontal != null && !mSwipeLeftHorizontal.isCompleteClose(getSwipeOffset());
     }
 
     @Override
     public boolean isRightCompleteOpen() {
-        return mSwipeRightHorizontal != null && !mSwipeRightHorizontal.isCompleteClose(getScrollX());
+        return mSwipeRightHorizontal != null && !mSwipeRightHorizontal.isCompleteClose(getSwipeOffset());
     }
 
     @Override
@@ -417,12 +700,12 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
 
     @Override
     public boolean isLeftMenuOpenNotEqual() {
-        return mSwipeLeftHorizontal != null && mSwipeLeftHorizontal.isMenuOpenNotEqual(getScrollX());
+        return mSwipeLeftHorizontal != null && mSwipeLeftHorizontal.isMenuOpenNotEqual(getSwipeOffset());
     }
 
     @Override
     public boolean isRightMenuOpenNotEqual() {
-        return mSwipeRightHorizontal != null && mSwipeRightHorizontal.isMenuOpenNotEqual(getScrollX());
+        return mSwipeRightHorizontal != null && mSwipeRightHorizontal.isMenuOpenNotEqual(getSwipeOffset());
     }
 
     @Override
@@ -458,8 +741,8 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
 
     private void smoothOpenMenu(int duration) {
         if (mSwipeCurrentHorizontal != null) {
-            mSwipeCurrentHorizontal.autoOpenMenu(mScroller, getScrollX(), duration);
-            invalidate();
+            ensureMenusMeasured();
+            smoothScrollTo(mSwipeCurrentHorizontal.getMenuWidth(), duration);
         }
     }
 
@@ -487,11 +770,154 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
     @Override
     public void smoothCloseMenu(int duration) {
         if (mSwipeCurrentHorizontal != null) {
-            mSwipeCurrentHorizontal.autoCloseMenu(mScroller, getScrollX(), duration);
+            smoothScrollTo(0, duration);
+        }
+    }
+
+    /**
+     * Settle the current menu at the snap point, the fling goes to the adjacent snap point in its direction.
+     *
+     * @param velocityX the velocity of fling, 0 means no fling.
+     */
+    private void settleAtSnapPoint(int velocityX, int duration) {
+        ensureMenusMeasured();
+        int openVelocity = velocityX * mSwipeCurrentHorizontal.getDirection();
+        int distance = Math.abs(getSwipeOffset());
+        smoothScrollTo(mSwipeCurrentHorizontal.findSnapPoint(distance, openVelocity, mOpenPercent), duration);
+    }
+
+    /**
+     * Scroll the current menu to the distance from closed.
+     */
+    private void smoothScrollTo(int distance, int duration) {
+        if (mSpringEnabled) {
+            startSpring(mSwipeCurrentHorizontal.getScrollX(distance));
+        } else {
+            mSwipeCurrentHorizontal.autoScrollTo(mScroller, getSwipeOffset(), distance, duration);
+        }
+        invalidateSettle();
+    }
+
+    private void invalidateSettle() {
+        if (isFrameDriven()) {
+            postSettleOnAnimation();
+        } else {
             invalidate();
         }
     }
 
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        if (child == mContentView || !isMenuView(child)) return super.drawChild(canvas, child, drawingTime);
+
+        // The visible region of the layout, in the coordinates of children.
+        int visibleLeft = getScrollX();
+        int visibleRight = visibleLeft + getWidth();
+        drawFullSwipeGap(canvas, child, visibleLeft, visibleRight);
+
+        int translationX = (int)child.getTranslationX();
+        int left = Math.max(child.getLeft() + translationX, visibleLeft);
+        int right = Math.min(child.getRight() + translationX, visibleRight);
+
+        // The region of menu which is covered by the opaque content does not need to be drawn.
+        if (mContentView != null && mContentView.getVisibility() == VISIBLE && mContentView.isOpaque()) {
+            int contentTranslationX = (int)mContentView.getTranslationX();
+            int contentLeft = mContentView.getLeft() + contentTranslationX;
+            int contentRight = mContentView.getRight() + contentTranslationX;
+            if (contentLeft <= left && contentRight > left) left = contentRight;
+            if (contentRight >= right && contentLeft < right) right = contentLeft;
+        }
+
+        if (left >= right) return false;
+
+        if (left == child.getLeft() + translationX && right == child.getRight() + translationX) {
+            return super.drawChild(canvas, child, drawingTime);
+        }
+        int saveCount = canvas.save();
+        canvas.clipRect(left, child.getTop(), right, child.getBottom());
+        boolean result = super.drawChild(canvas, child, drawingTime);
+        canvas.restoreToCount(saveCount);
+        return result;
+    }
+
+    /**
+     * The menu dragged beyond its width leaves a gap between it and the edge of layout, the gap is filled with the
+     * background of the full swipe item, as if the item was stretched.
+     */
+    private void drawFullSwipeGap(Canvas canvas, View menuView, int visibleLeft, int visibleRight) {
+        if (!hasFullSwipe(menuView)) return;
+        Drawable background = ((SwipeMenuView)menuView).getFullSwipeItemView().getBackground();
+        if (background == null) return;
+
+        int translationX = (int)menuView.getTranslationX();
+        int left;
+        int right;
+        if (mSwipeRightHorizontal != null && menuView == mSwipeRightHorizontal.getMenuView()) {
+            left = menuView.getRight() + translationX;
+            right = visibleRight;
+        } else {
+            left = visibleLeft;
+            right = menuView.getLeft() + translationX;
+        }
+        if (left >= right) return;
+
+        Rect bounds = background.copyBounds();
+        background.setBounds(left, menuView.getTop(), right, menuView.getBottom());
+        background.draw(canvas);
+        background.setBounds(bounds);
+    }
+
+    private boolean isMenuView(View child) {
+        return (mSwipeLeftHorizontal != null && mSwipeLeftHorizontal.getMenuView() == child) ||
+            (mSwipeRightHorizontal != null && mSwipeRightHorizontal.getMenuView() == child);
+    }
+
+    /**
+     * The menus can be skipped only if they are completely closed and not moving.
+     */
+    private boolean shouldSkipMenus() {
+        return mLazyMenuMeasure && mContentView != null && !mDragging && getSwipeOffset() == 0 && !isSettling();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (!shouldSkipMenus()) {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            mMenusMeasured = true;
+            return;
+        }
+
+        mMenusMeasured = false;
+        measureChildWithMargins(mContentView, widthMeasureSpec, 0, heightMeasureSpec, 0);
+        LayoutParams lp = (LayoutParams)mContentView.getLayoutParams();
+        int width = mContentView.getMeasuredWidth() + lp.leftMargin + lp.rightMargin;
+        int height = mContentView.getMeasuredHeight() + lp.topMargin + lp.bottomMargin;
+        width = Math.max(width + getPaddingLeft() + getPaddingRight(), getSuggestedMinimumWidth());
+        height = Math.max(height + getPaddingTop() + getPaddingBottom(), getSuggestedMinimumHeight());
+        int childState = mContentView.getMeasuredState();
+        setMeasuredDimension(resolveSizeAndState(width, widthMeasureSpec, childState),
+            resolveSizeAndState(height, heightMeasureSpec, childState << MEASURED_HEIGHT_STATE_SHIFT));
+    }
+
+    /**
+     * Measure and layout the menus which were skipped in the last layout pass.
+     */
+    private void ensureMenusMeasured() {
+        if (mMenusMeasured) return;
+        mMenusMeasured = true;
+
+        int widthMeasureSpec = MeasureSpec.makeMeasureSpec(getMeasuredWidth(), MeasureSpec.EXACTLY);
+        int heightMeasureSpec = MeasureSpec.makeMeasureSpec(getMeasuredHeight(), MeasureSpec.EXACTLY);
+        if (mSwipeLeftHorizontal != null) {
+            measureChildWithMargins(mSwipeLeftHorizontal.getMenuView(), widthMeasureSpec, 0, heightMeasureSpec, 0);
+            layoutLeftMenu();
+        }
+        if (mSwipeRightHorizontal != null) {
+            measureChildWithMargins(mSwipeRightHorizontal.getMenuView(), widthMeasureSpec, 0, heightMeasureSpec, 0);
+            layoutRightMenu();
+        }
+    }
+
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
         int contentViewHeight;
@@ -504,6 +930,12 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
             mContentView.layout(start, top, start + contentViewWidth, top + contentViewHeight);
         }
 
+        if (!mMenusMeasured) return;
+        layoutLeftMenu();
+        layoutRightMenu();
+    }
+
+    private void layoutLeftMenu() {
         if (mSwipeLeftHorizontal != null) {
             View leftMenu = mSwipeLeftHorizontal.getMenuView();
             int menuViewWidth = leftMenu.getMeasuredWidthAndState();
@@ -511,8 +943,12 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
             LayoutParams lp = (LayoutParams)leftMenu.getLayoutParams();
             int top = getPaddingTop() + lp.topMargin;
             leftMenu.layout(-menuViewWidth, top, 0, top + menuViewHeight);
+            mSwipeLeftHorizontal.updateSnapPoints(isSnapToItems(leftMenu));
+            mSwipeLeftHorizontal.setMaxDistance(hasFullSwipe(leftMenu) ? getMeasuredWidth() : 0);
         }
+    }
 
+    private void layoutRightMenu() {
         if (mSwipeRightHorizontal != null) {
             View rightMenu = mSwipeRightHorizontal.getMenuView();
             int menuViewWidth = rightMenu.getMeasuredWidthAndState();
@@ -522,7 +958,106 @@ public class SwipeMenuLayout extends FrameLayout implements Controller {
 
             int parentViewWidth = getMeasuredWidthAndState();
             rightMenu.layout(parentViewWidth, top, parentViewWidth + menuViewWidth, top + menuViewHeight);
+            mSwipeRightHorizontal.updateSnapPoints(isSnapToItems(rightMenu));
+            mSwipeRightHorizontal.setMaxDistance(hasFullSwipe(rightMenu) ? getMeasuredWidth() : 0);
         }
     }
 
+    private static boolean isSnapToItems(View menuView) {
+        return menuView instanceof SwipeMenuView && ((SwipeMenuView)menuView).isSnapToItems();
+    }
+
+    private static boolean hasFullSwipe(View menuView) {
+        return menuView instanceof SwipeMenuView && ((SwipeMenuView)menuView).getFullSwipeItemView() != null;
+    }
+
+    /**
+     * Get the current menu if it is dragged beyond the threshold of its full swipe, otherwise is null.
+     */
+    private SwipeMenuView getFullSwipeMenu() {
+        if (mSwipeCurrentHorizontal == null) return null;
+        View menuView = mSwipeCurrentHorizontal.getMenuView();
+        if (!hasFullSwipe(menuView)) return null;
+
+        SwipeMenuView swipeMenuView = (SwipeMenuView)menuView;
+        int threshold = Math.max(swipeMenuView.getWidth(), (int)(getWidth() * swipeMenuView.getFullSwipeThreshold()));
+        return Math.abs(getSwipeOffset()) > threshold ? swipeMenuView : null;
+    }
+
+    // NestedScrollingChild2, the horizontal drags of menu are dispatched to the nested parents.
+
+    @Override
+    public void setNestedScrollingEnabled(boolean enabled) {
+        mChildHelper.setNestedScrollingEnabled(enabled);
+    }
+
+    @Override
+    public boolean isNestedScrollingEnabled() {
+        return mChildHelper.isNestedScrollingEnabled();
+    }
+
+    @Override
+    public boolean startNestedScroll(int axes) {
+        return startNestedScroll(axes, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public boolean startNestedScroll(int axes, int type) {
+        return mChildHelper.startNestedScroll(axes, type);
+    }
+
+    @Override
+    public void stopNestedScroll() {
+        stopNestedScroll(ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public void stopNestedScroll(int type) {
+        mChildHelper.stopNestedScroll(type);
+    }
+
+    @Override
+    public boolean hasNestedScrollingParent() {
+        return hasNestedScrollingParent(ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public boolean hasNestedScrollingParent(int type) {
+        return mChildHelper.hasNestedScrollingParent(type);
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed,
+        int[] offsetInWindow) {
+        return dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow,
+            ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed,
+        int[] offsetInWindow, int type) {
+        return mChildHelper.dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow,
+            type);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        return dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow, int type) {
+        return mChildHelper.dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow, type);
+    }
+
+    @Override
+    public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        return mChildHelper.dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        return mChildHelper.dispatchNestedPreFling(velocityX, velocityY);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * A {@link RecyclerView.RecycledViewPool} which can be shared by several {@link SwipeRecyclerView}s, such as the lists
+ * in the pages of a ViewPager. The holders of the pool are always wrapped in a menu layout, so a list with a
+ * {@link SwipeMenuCreator} and a list without one can share the pool, the list without one clears the menus.
+ *
+ * <p>The pool must be set before {@link SwipeRecyclerView#setAdapter(RecyclerView.Adapter)}. The view types of the
+ * pool are the view types of the origin adapters. The headers and footers of the lists never take the same view type,
+ * so their holders are never reused by other lists.</p>
+ *
+ * <pre>
+ * SwipeRecycledViewPool pool = new SwipeRecycledViewPool();
+ * pool.setMaxRecycledViews(VIEW_TYPE_ITEM, 20);
+ *
+ * recyclerView.setRecycledViewPool(pool);
+ * recyclerView.setAdapter(adapter);
+ * </pre>
+ */
+public class SwipeRecycledViewPool extends RecyclerView.RecycledViewPool {
+
+    private final ViewTypeTable mViewTypes = new ViewTypeTable();
+
+    ViewTypeTable getViewTypeTable() {
+        return mViewTypes;
+    }
+}
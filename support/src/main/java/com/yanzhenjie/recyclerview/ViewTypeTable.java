@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+/**
+ * The view types of the headers and footers of a wrapper adapter. The view types of the origin adapter are passed
+ * through as they are, so {@code holder.getItemViewType()} is still the view type which the origin adapter returns,
+ * the wrapper only reserves its own view types from the bottom of the int range, where an origin adapter hardly puts a
+ * view type, such as a resource id or a small constant.
+ *
+ * <p>A reserved view type is never reused, so the id of a header or a footer stays the same while others are added or
+ * removed, and the lists which share a table never give the same view type to different views.</p>
+ */
+final class ViewTypeTable {
+
+    private static final int BASE_RESERVED_TYPE = Integer.MIN_VALUE;
+
+    private int mReservedCount;
+
+    /**
+     * Reserve a view type which does not belong to the origin adapter.
+     */
+    public int reserve() {
+        return BASE_RESERVED_TYPE + mReservedCount++;
+    }
+
+    /**
+     * The view type was reserved by the wrapper.
+     */
+    public boolean isReserved(int viewType) {
+        return viewType < BASE_RESERVED_TYPE + mReservedCount;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the shifts of {@link BitArray} across the words against a plain list.
+ */
+public class BitArrayTest {
+
+    @Test
+    public void setAndGet() {
+        BitArray bits = new BitArray();
+        bits.set(0, true);
+        bits.set(63, true);
+        bits.set(64, true);
+        bits.set(200, true);
+
+        assertTrue(bits.get(0));
+        assertFalse(bits.get(1));
+        assertTrue(bits.get(63));
+        assertTrue(bits.get(64));
+        assertTrue(bits.get(200));
+        assertFalse(bits.get(1000));
+        assertEquals(4, bits.cardinality());
+        assertArrayEquals(new int[] {0, 63, 64, 200}, bits.toIndexArray());
+
+        bits.set(63, false);
+        bits.set(1000, false);
+        assertFalse(bits.get(63));
+        assertEquals(3, bits.cardinality());
+    }
+
+    @Test
+    public void insertCarriesTheLastBitToTheNextWord() {
+        BitArray bits = new BitArray();
+        bits.set(63, true);
+        bits.insert(0, false);
+
+        assertFalse(bits.get(63));
+        assertTrue(bits.get(64));
+        assertArrayEquals(new int[] {64}, bits.toIndexArray());
+    }
+
+    @Test
+    public void removeBorrowsTheFirstBitOfTheNextWord() {
+        BitArray bits = new BitArray();
+        bits.set(64, true);
+        bits.set(130, true);
+        bits.remove(10);
+
+        assertTrue(bits.get(63));
+        assertTrue(bits.get(129));
+        assertArrayEquals(new int[] {63, 129}, bits.toIndexArray());
+    }
+
+    @Test
+    public void clear() {
+        BitArray bits = new BitArray();
+        bits.set(5, true);
+        bits.set(500, true);
+        bits.clear();
+
+        assertEquals(0, bits.cardinality());
+        assertFalse(bits.get(500));
+    }
+
+    @Test
+    public void shiftsMatchList() {
+        Random random = new Random(11);
+        BitArray bits = new BitArray();
+        List<Boolean> expected = new ArrayList<>();
+        for (int step = 0; step < 5000; step++) {
+            int operation = random.nextInt(3);
+            if (operation == 0 || expected.isEmpty()) {
+                int index = random.nextInt(expected.size() + 1);
+                boolean value = random.nextBoolean();
+                bits.insert(index, value);
+                expected.add(index, value);
+            } else if (operation == 1) {
+                int index = random.nextInt(expected.size());
+                bits.remove(index);
+                expected.remove(index);
+            } else {
+                int index = random.nextInt(expected.size());
+                boolean value = random.nextBoolean();
+                bits.set(index, value);
+                expected.set(index, value);
+            }
+        }
+
+        int count = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), bits.get(i));
+            if (expected.get(i)) count++;
+        }
+        // The bits moved out of the list are cleared.
+        for (int i = expected.size(); i < expected.size() + 128; i++) {
+            assertFalse(bits.get(i));
+        }
+        assertEquals(count, bits.cardinality());
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the index of {@link ExpandableAdapter}, its view types, the dispatch of {@link
+ * ExpandableAdapter#submitDiff(ExpandableAdapter.DiffCallback, Runnable)} and the positions of the bound holders.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ExpandableAdapterTest {
+
+    private Context mContext;
+    private ViewGroup mRoot;
+    private TestAdapter mAdapter;
+    private List<String> mEvents;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mRoot = new FrameLayout(mContext);
+        mAdapter = new TestAdapter(mContext);
+
+        mEvents = new ArrayList<>();
+        mAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                mEvents.add("insert " + positionStart + " " + itemCount);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                mEvents.add("remove " + positionStart + " " + itemCount);
+            }
+        });
+    }
+
+    @Test
+    public void expandAndCollapse() {
+        mAdapter.mData = groups(group("A", "a1", "a2"), group("B"), group("C", "c1", "c2", "c3"));
+        assertEquals(3, mAdapter.getItemCount());
+
+        mAdapter.expandParent(0);
+        mAdapter.expandParent(2);
+        assertEquals(8, mAdapter.getItemCount());
+        assertTrue(mAdapter.isParentItem(3));
+        assertEquals(1, mAdapter.parentItemPosition(3));
+        assertEquals(2, mAdapter.parentItemPosition(6));
+        assertEquals(1, mAdapter.childItemPosition(6));
+
+        mAdapter.collapseParent(0);
+        assertEquals(6, mAdapter.getItemCount());
+        assertArrayEquals(new int[] {2}, mAdapter.expandedParents());
+        assertEquals(Arrays.asList("insert 1 2", "insert 5 3", "remove 1 2"), mEvents);
+    }
+
+    @Test
+    public void stableIdsCanBeSetBeforeAttached() {
+        TestAdapter adapter = new TestAdapter(mContext);
+        adapter.setHasStableIds(true);
+        assertTrue(adapter.hasStableIds());
+
+        RecyclerView recyclerView = new RecyclerView(mContext);
+        recyclerView.setAdapter(adapter);
+        recyclerView.setAdapter(null);
+        assertFalse(adapter.hasObservers());
+    }
+
+    @Test
+    public void attachedAdapterObservesTheDataSetChanges() {
+        RecyclerView recyclerView = new RecyclerView(mContext);
+        recyclerView.setAdapter(mAdapter);
+
+        mAdapter.mData = groups(group("A", "a1"), group("B"));
+        mAdapter.notifyDataSetChanged();
+        assertEquals(2, mAdapter.getItemCount());
+
+        mAdapter.mData.add(group("C"));
+        mAdapter.notifyItemInserted(2);
+        assertEquals(3, mAdapter.getItemCount());
+    }
+
+    @Test
+    public void viewTypesOfTheItemsAreKept() {
+        mAdapter.mData = groups(group("A", "a1"), group("B", "b1"));
+        mAdapter.expandAll();
+
+        assertEquals(0, mAdapter.getItemViewType(0));
+        assertEquals(1, mAdapter.getItemViewType(1));
+        assertEquals(0, mAdapter.getItemViewType(2));
+        assertEquals(-5, mAdapter.getItemViewType(3));
+
+        TestHolder parent = mAdapter.onCreateViewHolder(mRoot, 0);
+        TestHolder child = mAdapter.onCreateViewHolder(mRoot, 1);
+        TestHolder negativeChild = mAdapter.onCreateViewHolder(mRoot, -5);
+        assertFalse(parent.mChild);
+        assertEquals(0, parent.mViewType);
+        assertTrue(child.mChild);
+        assertEquals(1, child.mViewType);
+        assertTrue(negativeChild.mChild);
+        assertEquals(-5, negativeChild.mViewType);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void parentAndChildCannotUseTheSameViewType() {
+        mContext.getApplicationInfo().flags |= ApplicationInfo.FLAG_DEBUGGABLE;
+        RecyclerView recyclerView = new RecyclerView(mContext);
+        recyclerView.setAdapter(mAdapter);
+
+        mAdapter.mData = groups(group("A", "a1"));
+        mAdapter.mFirstChildType = 0;
+        mAdapter.expandAll();
+        mAdapter.getItemViewType(0);
+        mAdapter.getItemViewType(1);
+    }
+
+    @Test
+    public void submitDiffNotifiesTheDifferenceByRanges() {
+        mContext.getApplicationInfo().flags |= ApplicationInfo.FLAG_DEBUGGABLE;
+        RecyclerView recyclerView = new RecyclerView(mContext);
+        recyclerView.setAdapter(mAdapter);
+
+        final List<Group> oldData = groups(group("A", "a1", "a2"), group("B", "b1"), group("C", "c1", "c2", "c3"));
+        final List<Group> newData = groups(group("A", "a1", "a3", "a2"), group("C", "c1", "c3"), group("D", "d1"));
+        mAdapter.mData = oldData;
+        mAdapter.expandParent(0);
+        mAdapter.expandParent(2);
+
+        // Replay the notifications on the items of the list, the count of the adapter is read by each of them.
+        final List<String> items = flatten(oldData, mAdapter);
+        mAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                mAdapter.getItemCount();
+                for (int i = positionStart; i < positionStart + itemCount; i++) {
+                    items.set(i, "?");
+                }
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                mAdapter.getItemCount();
+                for (int i = 0; i < itemCount; i++) {
+                    items.add(positionStart, "?");
+                }
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                mAdapter.getItemCount();
+                items.subList(positionStart, positionStart + itemCount).clear();
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                mAdapter.getItemCount();
+                items.add(toPosition, items.remove(fromPosition));
+            }
+        });
+
+        mAdapter.submitDiff(new GroupDiffCallback(oldData, newData), new Runnable() {
+            @Override
+            public void run() {
+                mAdapter.mData = newData;
+            }
+        });
+
+        assertArrayEquals(new int[] {0, 1}, mAdapter.expandedParents());
+        List<String> expected = flatten(newData, mAdapter);
+        assertEquals(Arrays.asList("A", "a1", "a3", "a2", "C", "c1", "c3", "D"), expected);
+        assertEquals(expected.size(), mAdapter.getItemCount());
+        assertEquals(expected.size(), items.size());
+        for (int i = 0; i < items.size(); i++) {
+            if (!"?".equals(items.get(i))) assertEquals(expected.get(i), items.get(i));
+        }
+    }
+
+    @Test
+    public void holdersFollowTheChanges() {
+        List<Group> data = groups(group("A", "a1", "a2", "a3"), group("B", "b1"));
+        mAdapter.mData = data;
+        mAdapter.expandParent(0);
+        TestHolder a = bind(0);
+        TestHolder a1 = bind(1);
+        TestHolder a2 = bind(2);
+        TestHolder a3 = bind(3);
+        TestHolder b = bind(4);
+
+        data.add(0, group("Z"));
+        mAdapter.notifyParentInserted(0);
+        data.get(1).mChildren.remove(0);
+        mAdapter.notifyChildRemoved(1, 0);
+        data.get(1).mChildren.add(0, "a0");
+        mAdapter.notifyChildInserted(1, 0);
+        data.remove(2);
+        mAdapter.notifyParentRemoved(2);
+
+        assertTrue(a.isParentItem());
+        assertEquals(1, a.parentItemPosition());
+        assertTrue(a.isParentExpanded());
+
+        assertEquals(RecyclerView.NO_POSITION, a1.parentItemPosition());
+        assertEquals(RecyclerView.NO_POSITION, a1.childItemPosition());
+        assertFalse(a1.isParentItem());
+
+        assertEquals(1, a2.parentItemPosition());
+        assertEquals(1, a2.childItemPosition());
+        assertEquals(2, a3.childItemPosition());
+
+        assertEquals(RecyclerView.NO_POSITION, b.parentItemPosition());
+        assertFalse(b.isParentItem());
+        assertFalse(b.isParentExpanded());
+        assertEquals(5, mAdapter.getItemCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void parentHolderHasNoChildPosition() {
+        mAdapter.mData = groups(group("A", "a1"));
+        bind(0).childItemPosition();
+    }
+
+    private TestHolder bind(int position) {
+        TestHolder holder = mAdapter.onCreateViewHolder(mRoot, mAdapter.getItemViewType(position));
+        mAdapter.onBindViewHolder(holder, position, Collections.<Object>emptyList());
+        return holder;
+    }
+
+    private static List<String> flatten(List<Group> data, ExpandableAdapter<?> adapter) {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < data.size(); i++) {
+            items.add(data.get(i).mName);
+            if (adapter.isExpanded(i)) items.addAll(data.get(i).mChildren);
+        }
+        return items;
+    }
+
+    private static List<Group> groups(Group... groups) {
+        return new ArrayList<>(Arrays.asList(groups));
+    }
+
+    private static Group group(String name, String... children) {
+        return new Group(name, new ArrayList<>(Arrays.asList(children)));
+    }
+
+    private static class Group {
+
+        private final String mName;
+        private final List<String> mChildren;
+
+        Group(String name, List<String> children) {
+            this.mName = name;
+            this.mChildren = children;
+        }
+    }
+
+    private static class GroupDiffCallback extends ExpandableAdapter.DiffCallback {
+
+        private final List<Group> mOldData;
+        private final List<Group> mNewData;
+
+        GroupDiffCallback(List<Group> oldData, List<Group> newData) {
+            this.mOldData = oldData;
+            this.mNewData = newData;
+        }
+
+        @Override
+        public int getOldParentCount() {
+            return mOldData.size();
+        }
+
+        @Override
+        public int getNewParentCount() {
+            return mNewData.size();
+        }
+
+        @Override
+        public int getOldChildCount(int parentPosition) {
+            return mOldData.get(parentPosition).mChildren.size();
+        }
+
+        @Override
+        public int getNewChildCount(int parentPosition) {
+            return mNewData.get(parentPosition).mChildren.size();
+        }
+
+        @Override
+        public boolean areParentsTheSame(int oldParentPosition, int newParentPosition) {
+            return mOldData.get(oldParentPosition).mName.equals(mNewData.get(newParentPosition).mName);
+        }
+
+        @Override
+        public boolean areParentContentsTheSame(int oldParentPosition, int newParentPosition) {
+            return true;
+        }
+
+        @Override
+        public boolean areChildrenTheSame(int oldParentPosition, int oldChildPosition, int newParentPosition,
+            int newChildPosition) {
+            String oldChild = mOldData.get(oldParentPosition).mChildren.get(oldChildPosition);
+            return oldChild.equals(mNewData.get(newParentPosition).mChildren.get(newChildPosition));
+        }
+
+        @Override
+        public boolean areChildContentsTheSame(int oldParentPosition, int oldChildPosition, int newParentPosition,
+            int newChildPosition) {
+            return true;
+        }
+    }
+
+    private static class TestHolder extends ExpandableAdapter.ViewHolder {
+
+        private final boolean mChild;
+        private final int mViewType;
+
+        TestHolder(View itemView, ExpandableAdapter adapter, boolean child, int viewType) {
+            super(itemView, adapter);
+            this.mChild = child;
+            this.mViewType = viewType;
+        }
+    }
+
+    private static class TestAdapter extends ExpandableAdapter<TestHolder> {
+
+        private final Context mContext;
+        private List<Group> mData = Collections.emptyList();
+        private int mFirstChildType = 1;
+
+        TestAdapter(Context context) {
+            this.mContext = context;
+        }
+
+        @Override
+        public int parentItemCount() {
+            return mData.size();
+        }
+
+        @Override
+        public int childItemCount(int parentPosition) {
+            return mData.get(parentPosition).mChildren.size();
+        }
+
+        @Override
+        public int parentItemViewType(int parentPosition) {
+            return 0;
+        }
+
+        @Override
+        public int childItemViewType(int parentPosition, int childPosition) {
+            return parentPosition == 0 ? mFirstChildType : -5;
+        }
+
+        @Override
+        public TestHolder createParentHolder(@NonNull ViewGroup root, int viewType) {
+            return new TestHolder(new View(mContext), this, false, viewType);
+        }
+
+        @Override
+        public TestHolder createChildHolder(@NonNull ViewGroup root, int viewType) {
+            return new TestHolder(new View(mContext), this, true, viewType);
+        }
+
+        @Override
+        public void bindParentHolder(@NonNull TestHolder holder, int position) {
+        }
+
+        @Override
+        public void bindChildHolder(@NonNull TestHolder holder, int parentPosition, int position) {
+        }
+    }
+}
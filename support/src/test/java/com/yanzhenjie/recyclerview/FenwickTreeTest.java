@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the prefix sums and the structural changes of {@link FenwickTree} against a plain list.
+ */
+public class FenwickTreeTest {
+
+    @Test
+    public void buildAndQuery() {
+        FenwickTree tree = new FenwickTree();
+        tree.build(new int[] {3, 1, 0, 4, 2}, 5);
+
+        assertEquals(5, tree.size());
+        assertEquals(10, tree.sum());
+        assertEquals(0, tree.prefixSum(0));
+        assertEquals(4, tree.prefixSum(2));
+        assertEquals(4, tree.prefixSum(3));
+        assertEquals(10, tree.prefixSum(5));
+
+        assertEquals(0, tree.find(0));
+        assertEquals(0, tree.find(2));
+        assertEquals(1, tree.find(3));
+        // The index of value 0 covers no sum, the sum 4 belongs to the next index.
+        assertEquals(3, tree.find(4));
+        assertEquals(4, tree.find(9));
+        assertEquals(5, tree.find(10));
+    }
+
+    @Test
+    public void setKeepsTheSum() {
+        FenwickTree tree = new FenwickTree();
+        tree.build(new int[] {1, 1, 1, 1}, 4);
+
+        tree.set(2, 5);
+        assertEquals(8, tree.sum());
+        assertEquals(2, tree.prefixSum(2));
+        assertEquals(7, tree.prefixSum(3));
+        assertEquals(2, tree.find(6));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeValue() {
+        FenwickTree tree = new FenwickTree();
+        tree.build(new int[] {1}, 1);
+        tree.set(0, -1);
+    }
+
+    @Test
+    public void insertAtTheEndGrowsTheTree() {
+        FenwickTree tree = new FenwickTree();
+        for (int i = 0; i < 100; i++) {
+            tree.insert(i, i % 3);
+        }
+
+        int sum = 0;
+        for (int i = 0; i < 100; i++) {
+            assertEquals(sum, tree.prefixSum(i));
+            sum += i % 3;
+        }
+        assertEquals(sum, tree.sum());
+    }
+
+    @Test
+    public void structuralChangesMatchList() {
+        Random random = new Random(7);
+        for (int round = 0; round < 500; round++) {
+            List<Integer> expected = new ArrayList<>();
+            int size = random.nextInt(20);
+            int[] values = new int[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = random.nextInt(5);
+                expected.add(values[i]);
+            }
+            FenwickTree tree = new FenwickTree();
+            tree.build(values, size);
+
+            for (int step = 0; step < 40; step++) {
+                int operation = random.nextInt(3);
+                if (operation == 0) {
+                    int index = random.nextInt(expected.size() + 1);
+                    int count = 1 + random.nextInt(4);
+                    int value = random.nextInt(5);
+                    tree.insert(index, value, count);
+                    for (int i = 0; i < count; i++) {
+                        expected.add(index, value);
+                    }
+                } else if (operation == 1 && !expected.isEmpty()) {
+                    int index = random.nextInt(expected.size());
+                    int count = 1 + random.nextInt(Math.min(3, expected.size() - index));
+                    tree.remove(index, count);
+                    for (int i = 0; i < count; i++) {
+                        expected.remove(index);
+                    }
+                } else if (!expected.isEmpty()) {
+                    int index = random.nextInt(expected.size());
+                    int value = random.nextInt(5);
+                    tree.set(index, value);
+                    expected.set(index, value);
+                }
+                assertMatches(expected, tree);
+            }
+        }
+    }
+
+    private static void assertMatches(List<Integer> expected, FenwickTree tree) {
+        assertEquals(expected.size(), tree.size());
+        int sum = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).intValue(), tree.get(i));
+            assertEquals(sum, tree.prefixSum(i));
+            sum += expected.get(i);
+        }
+        assertEquals(sum, tree.sum());
+
+        for (int s = 0; s < sum; s++) {
+            int index = tree.find(s);
+            assertTrue(tree.prefixSum(index) <= s && s < tree.prefixSum(index) + tree.get(index));
+        }
+        assertEquals(expected.size(), tree.find(sum));
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the positions of the nodes of {@link TreeAdapter} and the ranges it notifies.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TreeAdapterTest {
+
+    private TestAdapter mAdapter;
+    private List<String> mEvents;
+
+    private TreeNode<String> mA;
+    private TreeNode<String> mA0;
+    private TreeNode<String> mA1;
+    private TreeNode<String> mA1a;
+    private TreeNode<String> mB;
+    private TreeNode<String> mB0;
+    private TreeNode<String> mC;
+
+    @Before
+    public void setUp() {
+        // A (expanded): A0, A1 (collapsed): A1a; B (collapsed): B0; C.
+        mA0 = new TreeNode<>("A0");
+        mA1a = new TreeNode<>("A1a");
+        mA1 = new TreeNode<>("A1").addChild(mA1a);
+        mA = new TreeNode<>("A").addChild(mA0).addChild(mA1);
+        mA.setExpanded(true);
+        mB0 = new TreeNode<>("B0");
+        mB = new TreeNode<>("B").addChild(mB0);
+        mC = new TreeNode<>("C");
+        TreeNode<String> root = new TreeNode<>("root").addChild(mA).addChild(mB).addChild(mC);
+
+        mAdapter = new TestAdapter();
+        mAdapter.setRoot(root);
+
+        mEvents = new ArrayList<>();
+        mAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                mEvents.add("change " + positionStart + " " + itemCount);
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                mEvents.add("change " + positionStart + " " + itemCount);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                mEvents.add("insert " + positionStart + " " + itemCount);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                mEvents.add("remove " + positionStart + " " + itemCount);
+            }
+        });
+    }
+
+    @Test
+    public void positionsOfTheVisibleNodes() {
+        assertVisible(mA, mA0, mA1, mB, mC);
+        assertEquals(1, mA0.getDepth());
+        assertEquals(RecyclerView.NO_POSITION, mAdapter.getPosition(mA1a));
+        assertEquals(RecyclerView.NO_POSITION, mAdapter.getPosition(mB0));
+    }
+
+    @Test
+    public void expandAndCollapse() {
+        mAdapter.expandNode(mA1);
+        assertVisible(mA, mA0, mA1, mA1a, mB, mC);
+
+        mAdapter.collapseNode(mA);
+        assertVisible(mA, mB, mC);
+
+        // The expanded state of a hidden node is kept.
+        mAdapter.expandNode(mA);
+        assertVisible(mA, mA0, mA1, mA1a, mB, mC);
+
+        assertEquals(Arrays.asList("insert 3 1", "remove 1 3", "insert 1 3"), mEvents);
+    }
+
+    @Test
+    public void changesOfHiddenNodesAreNotNotified() {
+        mAdapter.collapseNode(mA);
+        mEvents.clear();
+
+        mAdapter.expandNode(mA1);
+        TreeNode<String> x = new TreeNode<>("X");
+        mAdapter.insertNode(mB, 0, x);
+        assertVisible(mA, mB, mC);
+        assertTrue(mEvents.isEmpty());
+
+        mAdapter.expandNode(mB);
+        assertVisible(mA, mB, x, mB0, mC);
+        mAdapter.expandNode(mA);
+        assertVisible(mA, mA0, mA1, mA1a, mB, x, mB0, mC);
+
+        assertEquals(Arrays.asList("insert 2 2", "insert 1 3"), mEvents);
+    }
+
+    @Test
+    public void insertAndRemove() {
+        TreeNode<String> x = new TreeNode<>("X").addChild(new TreeNode<>("X0"));
+        x.setExpanded(true);
+        mAdapter.insertNode(mA, 1, x);
+        assertVisible(mA, mA0, x, x.getChild(0), mA1, mB, mC);
+
+        mAdapter.removeNode(mA0);
+        assertVisible(mA, x, x.getChild(0), mA1, mB, mC);
+
+        mAdapter.removeNode(mA);
+        assertVisible(mB, mC);
+
+        mAdapter.notifyNodeChanged(mC);
+        mAdapter.notifyNodeChanged(mB0);
+
+        assertEquals(Arrays.asList("insert 2 2", "remove 1 1", "remove 0 4", "change 1 1"), mEvents);
+    }
+
+    @Test
+    public void spansOfTheNodes() {
+        assertTrue(mAdapter.isFullSpan(mA));
+        assertFalse(mAdapter.isFullSpan(mA0));
+    }
+
+    @Test
+    public void spansOfTheNodesInGridWithHeaders() {
+        Context context = RuntimeEnvironment.application;
+        SwipeRecyclerView recyclerView = new SwipeRecyclerView(context);
+        GridLayoutManager layoutManager = new GridLayoutManager(context, 3);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.addHeaderView(new View(context));
+        recyclerView.addHeaderView(new View(context));
+        recyclerView.setAdapter(mAdapter);
+
+        // The headers, A, A0, A1, B, C.
+        assertSpans(recyclerView, 3, 3, 3, 1, 3, 3, 1);
+
+        // The headers, A, A0, A1, A1a, B, C.
+        mAdapter.expandNode(mA1);
+        assertSpans(recyclerView, 3, 3, 3, 1, 3, 1, 3, 1);
+    }
+
+    /**
+     * Check the span sizes of the lookup, and the widths of the items after the layout.
+     */
+    private static void assertSpans(RecyclerView recyclerView, int... spanSizes) {
+        GridLayoutManager layoutManager = (GridLayoutManager)recyclerView.getLayoutManager();
+        GridLayoutManager.SpanSizeLookup lookup = layoutManager.getSpanSizeLookup();
+        assertEquals(spanSizes.length, recyclerView.getAdapter().getItemCount());
+        for (int i = 0; i < spanSizes.length; i++) {
+            assertEquals(spanSizes[i], lookup.getSpanSize(i));
+        }
+
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+            View.MeasureSpec.makeMeasureSpec(1600, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, 480, 1600);
+        assertEquals(spanSizes.length, recyclerView.getChildCount());
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            View child = recyclerView.getChildAt(i);
+            int spanSize = spanSizes[recyclerView.getChildAdapterPosition(child)];
+            assertEquals(480 * spanSize / 3, child.getWidth());
+        }
+    }
+
+    private void assertVisible(TreeNode<?>... nodes) {
+        assertEquals(nodes.length, mAdapter.getItemCount());
+        for (int i = 0; i < nodes.length; i++) {
+            assertSame(nodes[i], mAdapter.getNode(i));
+            assertEquals(i, mAdapter.getPosition(mAdapter.getNode(i)));
+        }
+    }
+
+    private static class TestAdapter extends TreeAdapter<String, RecyclerView.ViewHolder> {
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View itemView = new View(parent.getContext());
+            itemView.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 100));
+            return new RecyclerView.ViewHolder(itemView) {
+            };
+        }
+
+        @Override
+        public void bindNodeHolder(@NonNull RecyclerView.ViewHolder holder, TreeNode<String> node, int depth) {
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the view types of the headers and footers never take the view types of an origin adapter.
+ */
+public class ViewTypeTableTest {
+
+    @Test
+    public void reservedTypesAreNeverReused() {
+        ViewTypeTable table = new ViewTypeTable();
+        int first = table.reserve();
+        int second = table.reserve();
+
+        assertNotEquals(first, second);
+        assertTrue(table.isReserved(first));
+        assertTrue(table.isReserved(second));
+    }
+
+    @Test
+    public void originTypesAreNotReserved() {
+        ViewTypeTable table = new ViewTypeTable();
+        for (int i = 0; i < 10; i++) {
+            table.reserve();
+        }
+
+        assertFalse(table.isReserved(0));
+        assertFalse(table.isReserved(-1));
+        assertFalse(table.isReserved(100000));
+        assertFalse(table.isReserved(Integer.MAX_VALUE));
+        assertFalse(table.isReserved(0x7f0b0001));
+    }
+
+    @Test
+    public void typeIsReservedOnlyAfterReserve() {
+        ViewTypeTable table = new ViewTypeTable();
+        int first = table.reserve();
+
+        assertFalse(table.isReserved(first + 1));
+        assertTrue(table.isReserved(table.reserve()));
+    }
+}
@@ -25,6 +25,7 @@ import android.view.View;
 import android.widget.Toast;
 
 import com.yanzhenjie.recyclerview.OnItemClickListener;
+import com.yanzhenjie.recyclerview.StickyHeaderDecoration;
 import com.yanzhenjie.recyclerview.SwipeRecyclerView;
 import com.yanzhenjie.recyclerview.sample.R;
 import com.yanzhenjie.recyclerview.sample.activity.expanded.entity.Group;
@@ -94,6 +95,9 @@ public class ListActivity extends AppCompatActivity {
         mAdapter = new ExpandedAdapter(this);
         mRecyclerView.setAdapter(mAdapter);
 
+        // 吸顶当前的parent item，点击吸顶的parent item同样会回调OnItemClickListener
+        new StickyHeaderDecoration(mAdapter).attachToRecyclerView(mRecyclerView);
+
         refresh();
     }
 
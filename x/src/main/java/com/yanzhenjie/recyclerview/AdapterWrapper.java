@@ -16,9 +16,11 @@
 package com.yanzhenjie.recyclerview;
 
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewParent;
 
 import com.yanzhenjie.recyclerview.x.R;
 
@@ -39,29 +41,48 @@ import static com.yanzhenjie.recyclerview.SwipeRecyclerView.RIGHT_DIRECTION;
  */
 class AdapterWrapper extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
-    private static final int BASE_ITEM_TYPE_HEADER = 100000;
-    private static final int BASE_ITEM_TYPE_FOOTER = 200000;
+    /**
+     * The ids of headers and footers are derived from their view types, which start from {@link Integer#MIN_VALUE}, so
+     * they take the range [Long.MIN_VALUE, Long.MIN_VALUE + 2^32), far from the ids of the origin adapter.
+     */
+    private static final long BASE_ITEM_ID_HEADER_FOOTER = Long.MIN_VALUE;
 
     private SparseArrayCompat<View> mHeaderViews = new SparseArrayCompat<>();
     private SparseArrayCompat<View> mFootViews = new SparseArrayCompat<>();
+    private final ViewTypeTable mViewTypes;
+    private final boolean mSharedPool;
+    private final boolean mDebuggable;
 
     private RecyclerView.Adapter mAdapter;
     private LayoutInflater mInflater;
 
     private SwipeMenuCreator mSwipeMenuCreator;
-    private OnItemMenuClickListener mOnItemMenuClickListener;
-    private OnItemClickListener mOnItemClickListener;
-    private OnItemLongClickListener mOnItemLongClickListener;
+    private final ItemClickDispatcher mClickDispatcher = new ItemClickDispatcher();
 
     AdapterWrapper(Context context, RecyclerView.Adapter adapter) {
+        this(context, adapter, null);
+    }
+
+    /**
+     * @param viewTypes the view types of the headers and footers of the shared pool, null if the pool is not shared.
+     */
+    AdapterWrapper(Context context, RecyclerView.Adapter adapter, ViewTypeTable viewTypes) {
         this.mInflater = LayoutInflater.from(context);
         this.mAdapter = adapter;
+        this.mSharedPool = viewTypes != null;
+        this.mViewTypes = viewTypes == null ? new ViewTypeTable() : viewTypes;
+        this.mDebuggable = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        super.setHasStableIds(adapter.hasStableIds());
     }
 
     public RecyclerView.Adapter getOriginAdapter() {
         return mAdapter;
     }
 
+    ItemClickDispatcher getClickDispatcher() {
+        return mClickDispatcher;
+    }
+
     /**
      * Set to create menu listener.
      *
@@ -77,15 +98,15 @@ class AdapterWrapper extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
      * @param onItemMenuClickListener listener.
      */
     void setOnItemMenuClickListener(OnItemMenuClickListener onItemMenuClickListener) {
-        this.mOnItemMenuClickListener = onItemMenuClickListener;
+        mClickDispatcher.setOnItemMenuClickListener(onItemMenuClickListener);
     }
 
     void setOnItemClickListener(OnItemClickListener onItemClickListener) {
-        this.mOnItemClickListener = onItemClickListener;
+        mClickDispatcher.setOnItemClickListener(onItemClickListener);
     }
 
     void setOnItemLongClickListener(OnItemLongClickListener onItemLongClickListener) {
-        this.mOnItemLongClickListener = onItemLongClickListener;
+        mClickDispatcher.setOnItemLongClickListener(onItemLongClickListener);
     }
 
     @Override
@@ -104,7 +125,12 @@ class AdapterWrapper extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         } else if (isFooter(position)) {
             return mFootViews.keyAt(position - getHeaderCount() - getContentItemCount());
         }
-        return mAdapter.getItemViewType(position - getHeaderCount());
+        int viewType = mAdapter.getItemViewType(position - getHeaderCount());
+        if (mDebuggable && mViewTypes.isReserved(viewType)) {
+            throw new IllegalStateException(String.format(
+                "The view type %d is reserved for the headers and footers, the adapter cannot use it.", viewType));
+        }
+        return viewType;
     }
 
     @NonNull
@@ -120,26 +146,11 @@ class AdapterWrapper extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             return new ViewHolder(contentView);
         }
 
-        final RecyclerView.ViewHolder viewHolder = mAdapter.onCreateViewHolder(parent, viewType);
-        if (mOnItemClickListener != null) {
-            viewHolder.itemView.setOnClickListener(new View.OnClickListener() {
-                @Override
-                public void onClick(View v) {
-                    mOnItemClickListener.onItemClick(v, viewHolder.getAdapterPosition());
-                }
-            });
-        }
-        if (mOnItemLongClickListener != null) {
-            viewHolder.itemView.setOnLongClickListener(new View.OnLongClickListener() {
-                @Override
-                public boolean onLongClick(View v) {
-                    mOnItemLongClickListener.onItemLongClick(v, viewHolder.getAdapterPosition());
-                    return true;
-                }
-            });
-        }
+        RecyclerView.ViewHolder viewHolder = mAdapter.onCreateViewHolder(parent, viewType);
+        bindClickListener(viewHolder.itemView);
 
-        if (mSwipeMenuCreator == null) return viewHolder;
+        // The holders of a shared pool are always wrapped, they may be bound by a list with menus later.
+        if (mSwipeMenuCreator == null && !mSharedPool) return viewHolder;
 
         contentView = mInflater.inflate(R.layout.x_recycler_view_item, parent, false);
         ViewGroup viewGroup = contentView.findViewById(R.id.swipe_content);
@@ -154,6 +165,19 @@ class AdapterWrapper extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         return viewHolder;
     }
 
+    /**
+     * Set the listeners to the content view. The holder from a shared pool may carry the listeners of another list, they
+     * are harmless, because the dispatcher always dispatches to the list which the holder is in.
+     */
+    private void bindClickListener(View contentView) {
+        if (mClickDispatcher.hasOnItemClickListener()) {
+            contentView.setOnClickListener(mClickDispatcher);
+        }
+        if (mClickDispatcher.hasOnItemLongClickListener()) {
+            contentView.setOnLongClickListener(mClickDispatcher);
+        }
+    }
+
     private Class<?> getSupperClass(Class<?> aClass) {
         Class<?> supperClass = aClass.getSuperclass();
         if (supperClass != null && !supperClass.equals(Object.class)) {
@@ -174,7 +198,21 @@ class AdapterWrapper extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         View itemView = holder.itemView;
         position -= getHeaderCount();
 
-        if (itemView instanceof SwipeMenuLayout && mSwipeMenuCreator != null) {
+        if (mSharedPool) {
+            if (itemView instanceof SwipeMenuLayout) {
+                ViewGroup viewGroup = itemView.findViewById(R.id.swipe_content);
+                bindClickListener(viewGroup.getChildAt(0));
+            } else {
+                bindClickListener(itemView);
+            }
+        }
+
+        if (itemView instanceof SwipeMenuLayout && mSwipeMenuCreator == null) {
+            // The menus were created by another list which shares the pool.
+            SwipeMenuLayout menuLayout = (SwipeMenuLayout)itemView;
+            ((ViewGroup)menuLayout.getChildAt(0)).removeAllViews();
+            ((ViewGroup)menuLayout.getChildAt(2)).removeAllViews();
+        } else if (itemView instanceof SwipeMenuLayout && isMenuAffected(payloads)) {
             SwipeMenuLayout menuLayout = (SwipeMenuLayout)itemView;
             SwipeMenu leftMenu = new SwipeMenu(menuLayout);
             SwipeMenu rightMenu = new SwipeMenu(menuLayout);
@@ -183,7 +221,7 @@ class AdapterWrapper extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             SwipeMenuView leftMenuView = (SwipeMenuView)menuLayout.getChildAt(0);
             if (leftMenu.hasMenuItems()) {
                 leftMenuView.setOrientation(leftMenu.getOrientation());
-                leftMenuView.createMenu(holder, leftMenu, menuLayout, LEFT_DIRECTION, mOnItemMenuClickListener);
+                leftMenuView.createMenu(leftMenu, menuLayout, LEFT_DIRECTION, mClickDispatcher);
             } else if (leftMenuView.getChildCount() > 0) {
                 leftMenuView.removeAllViews();
             }
@@ -191,7 +229,7 @@ class AdapterWrapper extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             SwipeMenuView rightMenuView = (SwipeMenuView)menuLayout.getChildAt(2);
             if (rightMenu.hasMenuItems()) {
                 rightMenuView.setOrientation(rightMenu.getOrientation());
-                rightMenuView.createMenu(holder, rightMenu, menuLayout, RIGHT_DIRECTION, mOnItemMenuClickListener);
+                rightMenuView.createMenu(rightMenu, menuLayout, RIGHT_DIRECTION, mClickDispatcher);
             } else if (rightMenuView.getChildCount() > 0) {
                 rightMenuView.removeAllViews();
             }
@@ -200,6 +238,20 @@ class AdapterWrapper extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         mAdapter.onBindViewHolder(holder, position, payloads);
     }
 
+    /**
+     * The partial update does not create the menus again, unless the creator declares that a payload affects them.
+     */
+    private boolean isMenuAffected(List<Object> payloads) {
+        if (payloads.isEmpty()) return true;
+        if (!(mSwipeMenuCreator instanceof PayloadSwipeMenuCreator)) return false;
+
+        PayloadSwipeMenuCreator menuCreator = (PayloadSwipeMenuCreator)mSwipeMenuCreator;
+        for (int i = 0; i < payloads.size(); i++) {
+            if (menuCreator.isMenuPayload(payloads.get(i))) return true;
+        }
+        return false;
+    }
+
     @Override
     public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
         mAdapter.onAttachedToRecyclerView(recyclerView);
@@ -252,7 +304,7 @@ class AdapterWrapper extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     }
 
     public void addHeaderView(View view) {
-        mHeaderViews.put(getHeaderCount() + BASE_ITEM_TYPE_HEADER, view);
+        mHeaderViews.put(mViewTypes.reserve(), view);
     }
 
     public void addHeaderViewAndNotify(View view) {
@@ -269,7 +321,7 @@ class AdapterWrapper extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     }
 
     public void addFooterView(View view) {
-        mFootViews.put(getFooterCount() + BASE_ITEM_TYPE_FOOTER, view);
+        mFootViews.put(mViewTypes.reserve(), view);
     }
 
     public void addFooterViewAndNotify(View view) {
@@ -289,6 +341,16 @@ class AdapterWrapper extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         return mHeaderViews.size();
     }
 
+    /**
+     * Get the number of the headers before the items of the origin adapter, 0 if the adapter of the list is not wrapped.
+     * The positions of the list minus it are the positions of the origin adapter.
+     */
+    static int getHeaderCount(ViewParent parent) {
+        if (!(parent instanceof RecyclerView)) return 0;
+        RecyclerView.Adapter adapter = ((RecyclerView)parent).getAdapter();
+        return adapter instanceof AdapterWrapper ? ((AdapterWrapper)adapter).getHeaderCount() : 0;
+    }
+
     public int getFooterCount() {
         return mFootViews.size();
     }
@@ -300,6 +362,9 @@ class AdapterWrapper extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         }
     }
 
+    /**
+     * The wrapper has stable ids if and only if the origin adapter has, it is decided when the wrapper is created.
+     */
     @Override
     public final void setHasStableIds(boolean hasStableIds) {
         super.setHasStableIds(hasStableIds);
@@ -308,7 +373,7 @@ class AdapterWrapper extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     @Override
     public long getItemId(int position) {
         if (isHeaderOrFooter(position)) {
-            return -position - 1;
+            return BASE_ITEM_ID_HEADER_FOOTER + ((long)getItemViewType(position) - Integer.MIN_VALUE);
         }
 
         position -= getHeaderCount();
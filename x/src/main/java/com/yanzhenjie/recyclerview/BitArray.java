@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of bits, one bit for each index, such as the expanded state of each parent. A bit can be inserted
+ * or removed in the middle, the bits after it are shifted a word at a time.
+ */
+final class BitArray {
+
+    private long[] mWords = new long[1];
+
+    public boolean get(int index) {
+        int word = index >>> 6;
+        return word < mWords.length && (mWords[word] & (1L << index)) != 0;
+    }
+
+    public void set(int index, boolean value) {
+        int word = index >>> 6;
+        if (value) {
+            ensureWords(word + 1);
+            mWords[word] |= 1L << index;
+        } else if (word < mWords.length) {
+            mWords[word] &= ~(1L << index);
+        }
+    }
+
+    /**
+     * Insert a bit at the index, the bits from the index are moved up by one.
+     */
+    public void insert(int index, boolean value) {
+        int word = index >>> 6;
+        ensureWords(word + 1);
+        if (mWords[mWords.length - 1] < 0) ensureWords(mWords.length + 1);
+
+        for (int i = mWords.length - 1; i > word; i--) {
+            mWords[i] = (mWords[i] << 1) | (mWords[i - 1] >>> 63);
+        }
+        long lowMask = (1L << index) - 1;
+        long bits = mWords[word];
+        mWords[word] = (bits & lowMask) | ((bits & ~lowMask) << 1);
+        set(index, value);
+    }
+
+    /**
+     * Remove the bit of the index, the bits after the index are moved down by one.
+     */
+    public void remove(int index) {
+        int word = index >>> 6;
+        if (word >= mWords.length) return;
+
+        long lowMask = (1L << index) - 1;
+        long bits = mWords[word];
+        mWords[word] = (bits & lowMask) | ((bits >>> 1) & ~lowMask);
+        for (int i = word; i < mWords.length - 1; i++) {
+            if (i > word) mWords[i] >>>= 1;
+            mWords[i] |= mWords[i + 1] << 63;
+        }
+        if (word < mWords.length - 1) mWords[mWords.length - 1] >>>= 1;
+    }
+
+    public void clear() {
+        Arrays.fill(mWords, 0);
+    }
+
+    /**
+     * Get the number of the set bits.
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : mWords) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Get the indexes of the set bits in ascending order.
+     */
+    public int[] toIndexArray() {
+        int[] indexes = new int[cardinality()];
+        int count = 0;
+        for (int i = 0; i < mWords.length; i++) {
+            long word = mWords[i];
+            while (word != 0) {
+                indexes[count++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return indexes;
+    }
+
+    private void ensureWords(int count) {
+        if (mWords.length < count) mWords = Arrays.copyOf(mWords, Math.max(count, mWords.length * 2));
+    }
+}
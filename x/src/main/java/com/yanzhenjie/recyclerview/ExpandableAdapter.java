@@ -15,15 +15,25 @@
  */
 package com.yanzhenjie.recyclerview;
 
+import android.content.pm.ApplicationInfo;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
 import android.util.SparseBooleanArray;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewParent;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
+import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.StaggeredGridLayoutManager;
 
@@ -35,8 +45,92 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
     private static final int TYPE_PARENT = 10000000;
     private static final int TYPE_CHILD = 20000000;
 
-    private final SparseBooleanArray mExpandItemArray = new SparseBooleanArray();
-    private final List<Integer> mParentViewType = new ArrayList<>();
+    private static final int DEFAULT_NOTIFY_CHANGED_THRESHOLD = 64;
+    private static final int DEFAULT_DIFF_ASYNC_THRESHOLD = 1000;
+
+    private static final int OP_PARENT_INSERTED = 1;
+    private static final int OP_PARENT_REMOVED = 2;
+    private static final int OP_CHILD_INSERTED = 3;
+    private static final int OP_CHILD_REMOVED = 4;
+    private static final int OP_CHILD_MOVED = 5;
+    private static final int MAX_POSITION_OPS = 32;
+
+    private static Executor sDiffExecutor;
+
+    /**
+     * The expanded state of each parent, it is moved along with the parents by {@link #notifyParentInserted(int)} and
+     * {@link #notifyParentRemoved(int)}.
+     */
+    private final BitArray mExpandItemArray = new BitArray();
+    /**
+     * The view types of this adapter which belong to parent items, the others belong to child items. The child view
+     * types are kept only to check the collision in the debuggable app.
+     */
+    private final SparseBooleanArray mParentViewTypes = new SparseBooleanArray();
+    private final SparseBooleanArray mChildViewTypes = new SparseBooleanArray();
+    private boolean mDebuggable;
+    private RecyclerView mRecyclerView;
+
+    /**
+     * The number of items of each parent, the parent itself and its visible children.
+     */
+    private final FenwickTree mItemIndex = new FenwickTree();
+    private int[] mItemCounts = new int[0];
+    private boolean mIndexInvalid = true;
+    private boolean mIndexNotifying;
+
+    private int mNotifyChangedThreshold = DEFAULT_NOTIFY_CHANGED_THRESHOLD;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private int mDiffAsyncThreshold = DEFAULT_DIFF_ASYNC_THRESHOLD;
+    private int mDiffGeneration;
+    /**
+     * The new data is visible while the differences are dispatched, but the index still counts the old parents until
+     * the last range is notified.
+     */
+    private boolean mDiffDispatching;
+
+    /**
+     * The last structural changes of this adapter by parent and child positions, four ints each, the holders move the
+     * positions of bind time along with them. The version counts the changes, the holders bound before the reset
+     * version look the positions up again.
+     */
+    private final int[] mPositionOps = new int[MAX_POSITION_OPS * 4];
+    private int mPositionVersion;
+    private int mResetVersion;
+
+    /**
+     * Invalidates the index when the data is changed by the notifications of {@link RecyclerView.Adapter} rather than
+     * those of this adapter. It is registered only while the adapter is attached to a list, an adapter with observers
+     * cannot change {@link #setHasStableIds(boolean)}.
+     */
+    private final RecyclerView.AdapterDataObserver mIndexObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            invalidate();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            if (!mIndexNotifying) invalidate();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            if (!mIndexNotifying) invalidate();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            if (!mIndexNotifying) invalidate();
+        }
+
+        private void invalidate() {
+            mIndexInvalid = true;
+            resetPositionOps();
+        }
+    };
+    private int mAttachedCount;
 
     /**
      * Parent item is expanded.
@@ -46,7 +140,38 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
      * @return true, otherwise is false.
      */
     public final boolean isExpanded(int parentPosition) {
-        return mExpandItemArray.get(parentPosition, false);
+        return mExpandItemArray.get(parentPosition);
+    }
+
+    /**
+     * Get the positions of the expanded parent items, it can be saved and restored by
+     * {@link #restoreExpandedParents(int[])}.
+     *
+     * @return positions of parent items, in ascending order.
+     */
+    public final int[] expandedParents() {
+        return mExpandItemArray.toIndexArray();
+    }
+
+    /**
+     * Restore the expanded parent items, the others are collapsed.
+     *
+     * @param parentPositions positions of parent items, from {@link #expandedParents()}.
+     */
+    public final void restoreExpandedParents(@NonNull int[] parentPositions) {
+        int[] oldPositions = expandedParents();
+        mExpandItemArray.clear();
+        for (int parentPosition : parentPositions) {
+            mExpandItemArray.set(parentPosition, true);
+        }
+        notifyIndexedDataSetChanged();
+
+        for (int parentPosition : oldPositions) {
+            if (!isExpanded(parentPosition)) onParentCollapsed(parentPosition);
+        }
+        for (int parentPosition : parentPositions) {
+            onParentExpanded(parentPosition);
+        }
     }
 
     /**
@@ -56,11 +181,14 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
      */
     public final void expandParent(int parentPosition) {
         if (!isExpanded(parentPosition)) {
-            mExpandItemArray.append(parentPosition, true);
+            ensureIndex();
+            mExpandItemArray.set(parentPosition, true);
 
             int position = positionFromParentPosition(parentPosition);
             int childCount = childItemCount(parentPosition);
-            notifyItemRangeInserted(position + 1, childCount);
+            mItemIndex.set(parentPosition, 1 + childCount);
+            notifyIndexedRangeInserted(position + 1, childCount);
+            onParentExpanded(parentPosition);
         }
     }
 
@@ -71,14 +199,128 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
      */
     public final void collapseParent(int parentPosition) {
         if (isExpanded(parentPosition)) {
-            mExpandItemArray.append(parentPosition, false);
+            ensureIndex();
+            mExpandItemArray.set(parentPosition, false);
 
             int position = positionFromParentPosition(parentPosition);
-            int childCount = childItemCount(parentPosition);
-            notifyItemRangeRemoved(position + 1, childCount);
+            int childCount = mItemIndex.get(parentPosition) - 1;
+            mItemIndex.set(parentPosition, 1);
+            recordPositionOp(OP_CHILD_REMOVED, parentPosition, 0, childCount);
+            notifyIndexedRangeRemoved(position + 1, childCount);
+            onParentCollapsed(parentPosition);
+        }
+    }
+
+    /**
+     * Expand all parents.
+     */
+    public final void expandAll() {
+        setExpanded(0, parentItemCount(), true);
+    }
+
+    /**
+     * Collapse all parents.
+     */
+    public final void collapseAll() {
+        setExpanded(0, parentItemCount(), false);
+    }
+
+    /**
+     * Expand or collapse the parents in the range. The child items of each changed parent are notified by one range,
+     * or the data set is notified once if more than {@link #setNotifyChangedThreshold(int)} parents are changed.
+     *
+     * @param parentStart position of the first parent item.
+     * @param parentCount number of parent items.
+     * @param expanded expand or collapse.
+     */
+    public final void setExpanded(int parentStart, int parentCount, boolean expanded) {
+        ensureIndex();
+        int parentEnd = parentStart + parentCount;
+        if (parentStart < 0 || parentCount < 0 || parentEnd > mItemIndex.size()) {
+            throw new IllegalStateException("The parent range is invalid: " + parentStart + ", " + parentCount);
+        }
+
+        int changedCount = 0;
+        for (int i = parentStart; i < parentEnd; i++) {
+            if (isExpanded(i) != expanded) changedCount++;
+        }
+        if (changedCount == 0) return;
+
+        if (changedCount > mNotifyChangedThreshold) {
+            for (int i = parentStart; i < parentEnd; i++) {
+                mExpandItemArray.set(i, expanded);
+            }
+            notifyIndexedDataSetChanged();
+            dispatchExpandedChanged(parentStart, parentEnd, expanded);
+            return;
+        }
+
+        int position = mItemIndex.prefixSum(parentStart);
+        for (int i = parentStart; i < parentEnd; i++) {
+            if (isExpanded(i) != expanded) {
+                mExpandItemArray.set(i, expanded);
+                if (expanded) {
+                    int childCount = childItemCount(i);
+                    mItemIndex.set(i, 1 + childCount);
+                    if (childCount > 0) notifyIndexedRangeInserted(position + 1, childCount);
+                } else {
+                    int childCount = mItemIndex.get(i) - 1;
+                    mItemIndex.set(i, 1);
+                    if (childCount > 0) {
+                        recordPositionOp(OP_CHILD_REMOVED, i, 0, childCount);
+                        notifyIndexedRangeRemoved(position + 1, childCount);
+                    }
+                }
+            }
+            position += mItemIndex.get(i);
+        }
+        dispatchExpandedChanged(parentStart, parentEnd, expanded);
+    }
+
+    private void dispatchExpandedChanged(int parentStart, int parentEnd, boolean expanded) {
+        for (int i = parentStart; i < parentEnd; i++) {
+            if (expanded) {
+                onParentExpanded(i);
+            } else {
+                onParentCollapsed(i);
+            }
         }
     }
 
+    /**
+     * Called after the parent is expanded, the parent may be expanded already.
+     */
+    void onParentExpanded(int parentPosition) {
+    }
+
+    /**
+     * Called after the parent is collapsed, the parent may be collapsed already.
+     */
+    void onParentCollapsed(int parentPosition) {
+    }
+
+    /**
+     * Called before the parent insertion is notified.
+     */
+    void onParentInserted(int parentPosition) {
+    }
+
+    /**
+     * Called before the parent removal is notified.
+     */
+    void onParentRemoved(int parentPosition) {
+    }
+
+    /**
+     * Set the maximum number of parents which are notified one by one in {@link #setExpanded(int, int, boolean)}, the
+     * data set is notified once if more parents are changed.
+     *
+     * @param threshold number of parents, the default is 64.
+     */
+    public final void setNotifyChangedThreshold(@IntRange(from = 0) int threshold) {
+        this.mNotifyChangedThreshold = threshold;
+    }
+
     /**
      * Notify any registered observers that the item at <code>parentPosition</code> has changed.
      *
@@ -90,24 +332,57 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
     }
 
     /**
-     * Notify any registered observers that the item reflected at <code>parentPosition</code> has been newly inserted.
+     * Notify any registered observers that the item reflected at <code>parentPosition</code> has been newly inserted,
+     * the new parent item is collapsed. It moves the index of the parents after it, so it is O(n - parentPosition).
      *
      * @param parentPosition position of parent item.
      */
     public final void notifyParentInserted(int parentPosition) {
-        int position = positionFromParentPosition(parentPosition);
-        notifyItemInserted(position);
+        if (parentPosition < 0 || (!mIndexInvalid && parentPosition > mItemIndex.size())) {
+            throw new IllegalStateException("The parent position is invalid: " + parentPosition);
+        }
+
+        onParentInserted(parentPosition);
+        mExpandItemArray.insert(parentPosition, false);
+        recordPositionOp(OP_PARENT_INSERTED, parentPosition, 0, 1);
+        if (mIndexInvalid) {
+            notifyIndexedRangeInserted(positionFromParentPosition(parentPosition), 1);
+        } else {
+            int position = mItemIndex.prefixSum(parentPosition);
+            mItemIndex.insert(parentPosition, 1);
+            notifyIndexedRangeInserted(position, 1);
+        }
     }
 
     /**
      * Notify any registered observers that the item previously located at <code>parentPosition</code> has been removed
-     * from the data set.
+     * from the data set, the child items of it are removed too. It moves the index of the parents after it, so it is
+     * O(n - parentPosition).
      *
      * @param parentPosition position of parent item.
      */
     public final void notifyParentRemoved(int parentPosition) {
-        int position = positionFromParentPosition(parentPosition);
-        notifyItemRemoved(position);
+        if (parentPosition < 0 || (!mIndexInvalid && parentPosition >= mItemIndex.size())) {
+            throw new IllegalStateException("The parent position is invalid: " + parentPosition);
+        }
+
+        onParentRemoved(parentPosition);
+        boolean expanded = isExpanded(parentPosition);
+        mExpandItemArray.remove(parentPosition);
+        recordPositionOp(OP_PARENT_REMOVED, parentPosition, 0, 1);
+        if (!mIndexInvalid) {
+            int position = mItemIndex.prefixSum(parentPosition);
+            int itemCount = mItemIndex.get(parentPosition);
+            mItemIndex.remove(parentPosition);
+            notifyIndexedRangeRemoved(position, itemCount);
+        } else if (expanded) {
+            // The child count of the removed parent is unknown.
+            notifyIndexedDataSetChanged();
+        } else {
+            ensureIndex();
+            int position = mItemIndex.prefixSum(Math.min(parentPosition, mItemIndex.size()));
+            notifyIndexedRangeRemoved(position, 1);
+        }
     }
 
     /**
@@ -117,8 +392,7 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
      * @param childPosition positoin of child item.
      */
     public final void notifyChildChanged(int parentPosition, int childPosition) {
-        int position = positionFromChildPosition(parentPosition, childPosition);
-        notifyItemChanged(position);
+        notifyChildRangeChanged(parentPosition, childPosition, 1);
     }
 
     /**
@@ -129,8 +403,7 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
      * @param childPosition positoin of child item.
      */
     public final void notifyChildInserted(int parentPosition, int childPosition) {
-        int position = positionFromChildPosition(parentPosition, childPosition);
-        notifyItemInserted(position);
+        notifyChildRangeInserted(parentPosition, childPosition, 1);
     }
 
     /**
@@ -141,70 +414,521 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
      * @param childPosition positoin of child item.
      */
     public final void notifyChildRemoved(int parentPosition, int childPosition) {
-        int position = positionFromChildPosition(parentPosition, childPosition);
-        notifyItemRemoved(position);
+        notifyChildRangeRemoved(parentPosition, childPosition, 1);
     }
 
-    private int positionFromParentPosition(int parentPosition) {
-        int itemCount = 0;
+    /**
+     * Notify any registered observers that the <code>childCount</code> child items starting at
+     * <code>childStart</code> have changed.
+     *
+     * @param parentPosition position of parent item.
+     * @param childStart position of the first child item.
+     * @param childCount number of child items.
+     */
+    public final void notifyChildRangeChanged(int parentPosition, int childStart, int childCount) {
+        if (!isExpanded(parentPosition) || childCount <= 0) return;
 
-        int parentCount = parentItemCount();
-        for (int i = 0; i < parentCount; i++) {
-            itemCount += 1;
+        int position = positionFromChildPosition(parentPosition, childStart + childCount - 1) - childCount + 1;
+        notifyItemRangeChanged(position, childCount);
+    }
 
-            if (parentPosition == i) {
-                return itemCount - 1;
-            } else {
-                if (isExpanded(i)) {
-                    itemCount += childItemCount(i);
-                } else {
-                    // itemCount += 1;
-                }
+    /**
+     * Notify any registered observers that the <code>childCount</code> child items starting at
+     * <code>childStart</code> have been newly inserted.
+     *
+     * @param parentPosition position of parent item.
+     * @param childStart position of the first child item.
+     * @param childCount number of child items.
+     */
+    public final void notifyChildRangeInserted(int parentPosition, int childStart, int childCount) {
+        if (!isExpanded(parentPosition) || childCount <= 0) return;
+
+        // The rebuilt index has counted the change already.
+        boolean indexInvalid = mIndexInvalid;
+        int position = positionFromParentPosition(parentPosition) + 1 + childStart;
+        if (!indexInvalid) mItemIndex.set(parentPosition, mItemIndex.get(parentPosition) + childCount);
+        recordPositionOp(OP_CHILD_INSERTED, parentPosition, childStart, childCount);
+        notifyIndexedRangeInserted(position, childCount);
+    }
+
+    /**
+     * Notify any registered observers that the <code>childCount</code> child items previously starting at
+     * <code>childStart</code> have been removed from the data set.
+     *
+     * @param parentPosition position of parent item.
+     * @param childStart position of the first child item.
+     * @param childCount number of child items.
+     */
+    public final void notifyChildRangeRemoved(int parentPosition, int childStart, int childCount) {
+        if (!isExpanded(parentPosition) || childCount <= 0) return;
+
+        // The rebuilt index has counted the change already.
+        boolean indexInvalid = mIndexInvalid;
+        int position = positionFromParentPosition(parentPosition) + 1 + childStart;
+        if (!indexInvalid) mItemIndex.set(parentPosition, mItemIndex.get(parentPosition) - childCount);
+        recordPositionOp(OP_CHILD_REMOVED, parentPosition, childStart, childCount);
+        notifyIndexedRangeRemoved(position, childCount);
+    }
+
+    /**
+     * Set the number of parents, or the number of child items of an expanded parent, above which
+     * {@link #submitDiff(DiffCallback, Runnable)} computes the difference on a background thread.
+     *
+     * @param itemCount number of items, the default is 1000.
+     */
+    public final void setDiffAsyncThreshold(@IntRange(from = 0) int itemCount) {
+        this.mDiffAsyncThreshold = itemCount;
+    }
+
+    /**
+     * Compute the difference between the old and the new items of the callback and notify it by ranges. The parents are
+     * compared first, then the child items of each expanded parent which is in both, so a change of the children is
+     * notified as the child ranges of the parent rather than the whole data set. The parents are not detected as
+     * moves, a moved parent is removed and inserted, and the inserted parents are collapsed.
+     *
+     * <p>The difference is computed on a background thread if there are many parents or an expanded parent has many
+     * child items, see {@link #setDiffAsyncThreshold(int)}. The data of the adapter must not be changed until the
+     * commit callback runs, it runs on the main thread right before the changes are notified, and it replaces the data
+     * of the adapter with the new items. The result of a submission is dropped if another one is submitted before it
+     * is committed.</p>
+     *
+     * @param callback the old items, which are shown by the adapter, and the new items.
+     * @param commitCallback replaces the data of the adapter with the new items.
+     */
+    public final void submitDiff(@NonNull final DiffCallback callback, @NonNull final Runnable commitCallback) {
+        final int generation = ++mDiffGeneration;
+        final int[] expandedParents = expandedParents();
+        if (!isDiffAsync(callback, expandedParents)) {
+            dispatchDiff(callback, calculateDiff(callback, expandedParents), commitCallback);
+            return;
+        }
+
+        getDiffExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final ParentDiff diff = calculateDiff(callback, expandedParents);
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mDiffGeneration) dispatchDiff(callback, diff, commitCallback);
+                    }
+                });
+            }
+        });
+    }
+
+    private boolean isDiffAsync(DiffCallback callback, int[] expandedParents) {
+        int oldParentCount = callback.getOldParentCount();
+        if (oldParentCount > mDiffAsyncThreshold || callback.getNewParentCount() > mDiffAsyncThreshold) return true;
+
+        for (int parentPosition : expandedParents) {
+            if (parentPosition < oldParentCount && callback.getOldChildCount(parentPosition) > mDiffAsyncThreshold) {
+                return true;
             }
         }
+        return false;
+    }
 
-        throw new IllegalStateException("The parent position is invalid: " + parentPosition);
+    private static synchronized Executor getDiffExecutor() {
+        if (sDiffExecutor == null) sDiffExecutor = Executors.newSingleThreadExecutor();
+        return sDiffExecutor;
     }
 
-    private int positionFromChildPosition(int parentPosition, int childPosition) {
-        int itemCount = 0;
+    /**
+     * Compare the parents, and the child items of the expanded parents which are in both, it may run on a background
+     * thread.
+     */
+    private static ParentDiff calculateDiff(final DiffCallback callback, int[] expandedParents) {
+        DiffUtil.DiffResult parentResult = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return callback.getOldParentCount();
+            }
 
-        int parentCount = parentItemCount();
-        for (int i = 0; i < parentCount; i++) {
-            itemCount += 1;
+            @Override
+            public int getNewListSize() {
+                return callback.getNewParentCount();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return callback.areParentsTheSame(oldItemPosition, newItemPosition);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return callback.areParentContentsTheSame(oldItemPosition, newItemPosition);
+            }
+
+            @Override
+            public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+                return callback.getParentChangePayload(oldItemPosition, newItemPosition);
+            }
+        }, false);
+
+        SparseArray<DiffUtil.DiffResult> childResults = new SparseArray<>();
+        for (final int oldParent : expandedParents) {
+            if (oldParent >= callback.getOldParentCount()) break;
+            final int newParent = parentResult.convertOldPositionToNew(oldParent);
+            if (newParent == DiffUtil.DiffResult.NO_POSITION) continue;
+
+            childResults.append(oldParent, DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                @Override
+                public int getOldListSize() {
+                    return callback.getOldChildCount(oldParent);
+                }
+
+                @Override
+                public int getNewListSize() {
+                    return callback.getNewChildCount(newParent);
+                }
+
+                @Override
+                public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                    return callback.areChildrenTheSame(oldParent, oldItemPosition, newParent, newItemPosition);
+                }
 
-            if (parentPosition == i) {
-                int childCount = childItemCount(parentPosition);
-                if (childPosition < childCount) {
-                    itemCount += (childPosition + 1);
-                    return itemCount - 1;
+                @Override
+                public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                    return callback.areChildContentsTheSame(oldParent, oldItemPosition, newParent, newItemPosition);
                 }
 
-                throw new IllegalStateException("The child position is invalid: " + childPosition);
+                @Override
+                public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+                    return callback.getChildChangePayload(oldParent, oldItemPosition, newParent, newItemPosition);
+                }
+            }));
+        }
+        return new ParentDiff(parentResult, childResults);
+    }
+
+    /**
+     * Commit the new items and notify the difference. The index is built from the old items, and each notification
+     * moves it a step to the new items, so the flat positions of the notifications are those of the items which the
+     * list shows at that time.
+     */
+    private void dispatchDiff(DiffCallback callback, ParentDiff diff, Runnable commitCallback) {
+        mDiffDispatching = true;
+        try {
+            dispatchDiffUpdates(callback, diff, commitCallback);
+        } finally {
+            mDiffDispatching = false;
+        }
+    }
+
+    private void dispatchDiffUpdates(DiffCallback callback, ParentDiff diff, Runnable commitCallback) {
+        commitCallback.run();
+
+        int oldParentCount = callback.getOldParentCount();
+        if (mItemCounts.length < oldParentCount) mItemCounts = new int[oldParentCount];
+        for (int i = 0; i < oldParentCount; i++) {
+            mItemCounts[i] = isExpanded(i) ? 1 + callback.getOldChildCount(i) : 1;
+        }
+        mItemIndex.build(mItemCounts, oldParentCount);
+        mIndexInvalid = false;
+
+        // The child items first, the parents are still the old ones.
+        for (int i = 0; i < oldParentCount; i++) {
+            if (!isExpanded(i)) continue;
+            int newParent = diff.mParentResult.convertOldPositionToNew(i);
+            if (newParent == DiffUtil.DiffResult.NO_POSITION) continue;
+
+            DiffUtil.DiffResult childResult = diff.mChildResults.get(i);
+            if (childResult != null) {
+                childResult.dispatchUpdatesTo(new ChildUpdateCallback(i));
             } else {
-                if (isExpanded(i)) {
-                    itemCount += childItemCount(i);
-                } else {
-                    // itemCount += 1;
+                // The parent is expanded after the difference is computed.
+                replaceChildren(i, callback.getNewChildCount(newParent));
+            }
+        }
+        diff.mParentResult.dispatchUpdatesTo(new ParentUpdateCallback());
+    }
+
+    private void replaceChildren(int parentPosition, int childCount) {
+        int position = mItemIndex.prefixSum(parentPosition) + 1;
+        int oldCount = mItemIndex.get(parentPosition) - 1;
+        mItemIndex.set(parentPosition, 1 + childCount);
+
+        int changedCount = Math.min(oldCount, childCount);
+        if (changedCount > 0) notifyItemRangeChanged(position, changedCount);
+        if (childCount > oldCount) {
+            recordPositionOp(OP_CHILD_INSERTED, parentPosition, oldCount, childCount - oldCount);
+            notifyIndexedRangeInserted(position + oldCount, childCount - oldCount);
+        } else if (childCount < oldCount) {
+            recordPositionOp(OP_CHILD_REMOVED, parentPosition, childCount, oldCount - childCount);
+            notifyIndexedRangeRemoved(position + childCount, oldCount - childCount);
+        }
+    }
+
+    private static final class ParentDiff {
+
+        private final DiffUtil.DiffResult mParentResult;
+        /**
+         * The difference of the child items of each expanded parent which is in both, by the old parent position.
+         */
+        private final SparseArray<DiffUtil.DiffResult> mChildResults;
+
+        private ParentDiff(DiffUtil.DiffResult parentResult, SparseArray<DiffUtil.DiffResult> childResults) {
+            this.mParentResult = parentResult;
+            this.mChildResults = childResults;
+        }
+    }
+
+    /**
+     * Notify the changes of the parents, the child items of the changed parents have been notified.
+     */
+    private final class ParentUpdateCallback implements ListUpdateCallback {
+
+        @Override
+        public void onInserted(int position, int count) {
+            int itemPosition = mItemIndex.prefixSum(position);
+            for (int i = 0; i < count; i++) {
+                onParentInserted(position + i);
+                mExpandItemArray.insert(position + i, false);
+            }
+            mItemIndex.insert(position, 1, count);
+            recordPositionOp(OP_PARENT_INSERTED, position, 0, count);
+            notifyIndexedRangeInserted(itemPosition, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            int itemPosition = mItemIndex.prefixSum(position);
+            int itemCount = mItemIndex.prefixSum(position + count) - itemPosition;
+            for (int i = 0; i < count; i++) {
+                onParentRemoved(position);
+                mExpandItemArray.remove(position);
+            }
+            mItemIndex.remove(position, count);
+            recordPositionOp(OP_PARENT_REMOVED, position, 0, count);
+            notifyIndexedRangeRemoved(itemPosition, itemCount);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            // The moves of parents are not detected.
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            for (int i = 0; i < count; i++) {
+                notifyItemChanged(mItemIndex.prefixSum(position + i), payload);
+            }
+        }
+    }
+
+    /**
+     * Notify the changes of the child items of a parent.
+     */
+    private final class ChildUpdateCallback implements ListUpdateCallback {
+
+        private final int mParentPosition;
+
+        private ChildUpdateCallback(int parentPosition) {
+            this.mParentPosition = parentPosition;
+        }
+
+        private int childStart() {
+            return mItemIndex.prefixSum(mParentPosition) + 1;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            int itemPosition = childStart() + position;
+            mItemIndex.set(mParentPosition, mItemIndex.get(mParentPosition) + count);
+            recordPositionOp(OP_CHILD_INSERTED, mParentPosition, position, count);
+            notifyIndexedRangeInserted(itemPosition, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            int itemPosition = childStart() + position;
+            mItemIndex.set(mParentPosition, mItemIndex.get(mParentPosition) - count);
+            recordPositionOp(OP_CHILD_REMOVED, mParentPosition, position, count);
+            notifyIndexedRangeRemoved(itemPosition, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            int childStart = childStart();
+            recordPositionOp(OP_CHILD_MOVED, mParentPosition, fromPosition, toPosition);
+            notifyIndexedItemMoved(childStart + fromPosition, childStart + toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            notifyItemRangeChanged(childStart() + position, count, payload);
+        }
+    }
+
+    /**
+     * Rebuild the index and notify the change of the data set, the index is rebuilt even if no list observes this
+     * adapter.
+     */
+    private void notifyIndexedDataSetChanged() {
+        mIndexInvalid = true;
+        resetPositionOps();
+        notifyDataSetChanged();
+    }
+
+    private void notifyIndexedRangeInserted(int positionStart, int itemCount) {
+        mIndexNotifying = true;
+        try {
+            notifyItemRangeInserted(positionStart, itemCount);
+        } finally {
+            mIndexNotifying = false;
+        }
+    }
+
+    private void notifyIndexedRangeRemoved(int positionStart, int itemCount) {
+        mIndexNotifying = true;
+        try {
+            notifyItemRangeRemoved(positionStart, itemCount);
+        } finally {
+            mIndexNotifying = false;
+        }
+    }
+
+    private void notifyIndexedItemMoved(int fromPosition, int toPosition) {
+        mIndexNotifying = true;
+        try {
+            notifyItemMoved(fromPosition, toPosition);
+        } finally {
+            mIndexNotifying = false;
+        }
+    }
+
+    /**
+     * Record a structural change, it must be recorded before it is notified.
+     *
+     * @param start the first child position, or the from position of a move.
+     * @param count the number of items, or the to position of a move.
+     */
+    private void recordPositionOp(int type, int parentPosition, int start, int count) {
+        int index = (mPositionVersion & (MAX_POSITION_OPS - 1)) * 4;
+        mPositionOps[index] = type;
+        mPositionOps[index + 1] = parentPosition;
+        mPositionOps[index + 2] = start;
+        mPositionOps[index + 3] = count;
+        mPositionVersion++;
+    }
+
+    /**
+     * The data has changed without the notifications of parents and children, the positions of the bound holders are
+     * looked up again.
+     */
+    private void resetPositionOps() {
+        mPositionVersion++;
+        mResetVersion = mPositionVersion;
+    }
+
+    /**
+     * Move the positions of the holder from its version to the current version.
+     *
+     * @return false if the changes since the holder was bound are not recorded.
+     */
+    private boolean applyPositionOps(ViewHolder holder) {
+        if (holder.mPositionVersion < mResetVersion || mPositionVersion - holder.mPositionVersion > MAX_POSITION_OPS) {
+            return false;
+        }
+
+        int parentPosition = holder.mParentPosition;
+        int childPosition = holder.mChildPosition;
+        for (int version = holder.mPositionVersion; version < mPositionVersion; version++) {
+            if (parentPosition == RecyclerView.NO_POSITION) break;
+
+            int index = (version & (MAX_POSITION_OPS - 1)) * 4;
+            int parent = mPositionOps[index + 1];
+            int start = mPositionOps[index + 2];
+            int count = mPositionOps[index + 3];
+            switch (mPositionOps[index]) {
+                case OP_PARENT_INSERTED: {
+                    if (parentPosition >= parent) parentPosition += count;
+                    break;
+                }
+                case OP_PARENT_REMOVED: {
+                    if (parentPosition >= parent + count) {
+                        parentPosition -= count;
+                    } else if (parentPosition >= parent) {
+                        parentPosition = RecyclerView.NO_POSITION;
+                    }
+                    break;
+                }
+                case OP_CHILD_INSERTED: {
+                    if (parentPosition == parent && childPosition >= start) childPosition += count;
+                    break;
+                }
+                case OP_CHILD_REMOVED: {
+                    if (parentPosition == parent && childPosition >= start + count) {
+                        childPosition -= count;
+                    } else if (parentPosition == parent && childPosition >= start) {
+                        parentPosition = RecyclerView.NO_POSITION;
+                    }
+                    break;
+                }
+                case OP_CHILD_MOVED: {
+                    if (parentPosition != parent || childPosition < 0) break;
+                    if (childPosition == start) {
+                        childPosition = count;
+                    } else if (start < childPosition && childPosition <= count) {
+                        childPosition--;
+                    } else if (count <= childPosition && childPosition < start) {
+                        childPosition++;
+                    }
+                    break;
                 }
             }
         }
+        holder.mParentPosition = parentPosition;
+        holder.mChildPosition = childPosition;
+        return true;
+    }
+
+    /**
+     * Rebuild the index from the data if the data has changed without the notifications of this adapter, it is O(n),
+     * and the queries are O(log n) after that.
+     */
+    void ensureIndex() {
+        if (!mIndexInvalid) return;
 
-        throw new IllegalStateException("The parent position is invalid: " + parentPosition);
+        int parentCount = parentItemCount();
+        if (mItemCounts.length < parentCount) mItemCounts = new int[parentCount];
+        for (int i = 0; i < parentCount; i++) {
+            mItemCounts[i] = isExpanded(i) ? 1 + childItemCount(i) : 1;
+        }
+        mItemIndex.build(mItemCounts, parentCount);
+        mIndexInvalid = false;
+    }
+
+    private int positionFromParentPosition(int parentPosition) {
+        ensureIndex();
+        if (parentPosition < 0 || parentPosition >= mItemIndex.size()) {
+            throw new IllegalStateException("The parent position is invalid: " + parentPosition);
+        }
+        return mItemIndex.prefixSum(parentPosition);
     }
 
+    private int positionFromChildPosition(int parentPosition, int childPosition) {
+        int position = positionFromParentPosition(parentPosition);
+        int childCount = childItemCount(parentPosition);
+        if (childPosition < childCount) return position + 1 + childPosition;
+
+        throw new IllegalStateException("The child position is invalid: " + childPosition);
+    }
+
+    /**
+     * The count is kept by {@link #expandParent(int)}, {@link #collapseParent(int)} and the notifications of this
+     * adapter, it is recomputed after {@link #notifyDataSetChanged()} and the other notifications of
+     * {@link RecyclerView.Adapter} while the adapter is attached to a list, and when it is attached.
+     */
     @Override
     public final int getItemCount() {
-        int parentCount = parentItemCount();
-        for (int i = 0; i < parentCount; i++) {
-            if (isExpanded(i)) {
-                int childCount = childItemCount(i);
-                parentCount += childCount;
-            } else {
-                // parentCount += 0;
-            }
+        ensureIndex();
+        if (mDebuggable && !mDiffDispatching && mItemIndex.size() != parentItemCount()) {
+            throw new IllegalStateException("The parent count has changed from " + mItemIndex.size() + " to " +
+                parentItemCount() + " without notification.");
         }
-        return parentCount;
+        return mItemIndex.sum();
     }
 
     /**
@@ -219,16 +943,33 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
      */
     public abstract int childItemCount(int parentPosition);
 
+    /**
+     * The view type of an item is the view type of the parent or child item itself, the parent view types are kept in
+     * a set of this adapter, so the holder of a view type is created as a parent or child holder. A view type cannot be
+     * used by both parent and child items, it is checked only in the debuggable app.
+     */
     @Override
     public final int getItemViewType(int position) {
         int parentPosition = parentItemPosition(position);
-        if (isParentItem(position)) {
+        int childPosition = position - mItemIndex.prefixSum(parentPosition) - 1;
+        if (childPosition < 0) {
             int viewType = parentItemViewType(parentPosition);
-            if (!mParentViewType.contains(viewType)) mParentViewType.add(viewType);
+            mParentViewTypes.put(viewType, true);
+            if (mDebuggable) checkViewType(viewType);
             return viewType;
         } else {
-            int childPosition = childItemPosition(position);
-            return childItemViewType(parentPosition, childPosition);
+            int viewType = childItemViewType(parentPosition, childPosition);
+            if (mDebuggable) {
+                mChildViewTypes.put(viewType, true);
+                checkViewType(viewType);
+            }
+            return viewType;
+        }
+    }
+
+    private void checkViewType(int viewType) {
+        if (mParentViewTypes.get(viewType) && mChildViewTypes.get(viewType)) {
+            throw new IllegalStateException("The view type is used by both parent and child items: " + viewType);
         }
     }
 
@@ -236,6 +977,8 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
      * Get the view type of the parent item.
      *
      * @param parentPosition position of parent item.
+     *
+     * @return view type, it cannot be used by child items.
      */
     public int parentItemViewType(int parentPosition) {
         return TYPE_PARENT;
@@ -246,6 +989,8 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
      *
      * @param parentPosition position of parent item.
      * @param childPosition position of child item.
+     *
+     * @return view type, it cannot be used by parent items.
      */
     public int childItemViewType(int parentPosition, int childPosition) {
         return TYPE_CHILD;
@@ -259,24 +1004,9 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
      * @return true, otherwise is false.
      */
     public final boolean isParentItem(int adapterPosition) {
-        int itemCount = 0;
-
-        int parentCount = parentItemCount();
-        for (int i = 0; i < parentCount; i++) {
-            if (itemCount == adapterPosition) {
-                return true;
-            }
-
-            itemCount += 1;
-
-            if (isExpanded(i)) {
-                itemCount += childItemCount(i);
-            } else {
-                // itemCount += 1;
-            }
-        }
-
-        return false;
+        ensureIndex();
+        int parentPosition = mItemIndex.find(adapterPosition);
+        return parentPosition < mItemIndex.size() && mItemIndex.prefixSum(parentPosition) == adapterPosition;
     }
 
     /**
@@ -285,18 +1015,9 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
      * @param adapterPosition adapter position of item.
      */
     public final int parentItemPosition(int adapterPosition) {
-        int itemCount = 0;
-        for (int i = 0; i < parentItemCount(); i++) {
-            itemCount += 1;
-
-            if (isExpanded(i)) {
-                int childCount = childItemCount(i);
-                itemCount += childCount;
-            }
-            if (adapterPosition < itemCount) {
-                return i;
-            }
-        }
+        ensureIndex();
+        int parentPosition = mItemIndex.find(adapterPosition);
+        if (adapterPosition >= 0 && parentPosition < mItemIndex.size()) return parentPosition;
 
         throw new IllegalStateException("The adapter position is not a parent type: " + adapterPosition);
     }
@@ -307,22 +1028,11 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
      * @param childAdapterPosition adapter position of child item.
      */
     public final int childItemPosition(int childAdapterPosition) {
-        int itemCount = 0;
-
-        int parentCount = parentItemCount();
-        for (int i = 0; i < parentCount; i++) {
-            itemCount += 1;
-
-            if (isExpanded(i)) {
-                int childCount = childItemCount(i);
-                itemCount += childCount;
-
-                if (childAdapterPosition < itemCount) {
-                    return childCount - (itemCount - childAdapterPosition);
-                }
-            } else {
-                // itemCount += 1;
-            }
+        ensureIndex();
+        int parentPosition = mItemIndex.find(childAdapterPosition);
+        if (childAdapterPosition >= 0 && parentPosition < mItemIndex.size()) {
+            int childPosition = childAdapterPosition - mItemIndex.prefixSum(parentPosition) - 1;
+            if (childPosition >= 0) return childPosition;
         }
 
         throw new IllegalStateException("The adapter position is invalid: " + childAdapterPosition);
@@ -331,7 +1041,7 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
     @NonNull
     @Override
     public final VH onCreateViewHolder(@NonNull ViewGroup root, int viewType) {
-        if (mParentViewType.contains(viewType)) return createParentHolder(root, viewType);
+        if (mParentViewTypes.get(viewType)) return createParentHolder(root, viewType);
         return createChildHolder(root, viewType);
     }
 
@@ -358,10 +1068,15 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
     @Override
     public final void onBindViewHolder(@NonNull VH holder, int position, @NonNull List<Object> payloads) {
         int parentPosition = parentItemPosition(position);
-        if (isParentItem(position)) {
+        int childPosition = position - mItemIndex.prefixSum(parentPosition) - 1;
+        ViewHolder viewHolder = holder;
+        viewHolder.mParentPosition = parentPosition;
+        viewHolder.mChildPosition = childPosition;
+        viewHolder.mPositionVersion = mPositionVersion;
+
+        if (childPosition < 0) {
             bindParentHolder(holder, parentPosition, payloads);
         } else {
-            int childPosition = childItemPosition(position);
             bindChildHolder(holder, parentPosition, childPosition, payloads);
         }
     }
@@ -398,10 +1113,79 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
     public final void onBindViewHolder(@NonNull VH holder, int position) {
     }
 
+    /**
+     * The old and the new items of {@link #submitDiff(DiffCallback, Runnable)}. The methods may be called on a
+     * background thread, so the old and the new items must not be changed until they are committed.
+     */
+    public static abstract class DiffCallback {
+
+        public abstract int getOldParentCount();
+
+        public abstract int getNewParentCount();
+
+        /**
+         * @param parentPosition position of the old parent item.
+         */
+        public abstract int getOldChildCount(int parentPosition);
+
+        /**
+         * @param parentPosition position of the new parent item.
+         */
+        public abstract int getNewChildCount(int parentPosition);
+
+        /**
+         * The two parent items represent the same parent, such as they have the same id.
+         */
+        public abstract boolean areParentsTheSame(int oldParentPosition, int newParentPosition);
+
+        /**
+         * The two parent items have the same data, it is called only if they represent the same parent.
+         */
+        public abstract boolean areParentContentsTheSame(int oldParentPosition, int newParentPosition);
+
+        /**
+         * The two child items represent the same child, it is called only for the child items of the same parent.
+         */
+        public abstract boolean areChildrenTheSame(int oldParentPosition, int oldChildPosition, int newParentPosition,
+            int newChildPosition);
+
+        /**
+         * The two child items have the same data, it is called only if they represent the same child.
+         */
+        public abstract boolean areChildContentsTheSame(int oldParentPosition, int oldChildPosition,
+            int newParentPosition, int newChildPosition);
+
+        /**
+         * Get the payload of the change of the parent item, it is called only if the contents are not the same.
+         */
+        @Nullable
+        public Object getParentChangePayload(int oldParentPosition, int newParentPosition) {
+            return null;
+        }
+
+        /**
+         * Get the payload of the change of the child item, it is called only if the contents are not the same.
+         */
+        @Nullable
+        public Object getChildChangePayload(int oldParentPosition, int oldChildPosition, int newParentPosition,
+            int newChildPosition) {
+            return null;
+        }
+    }
+
     public static abstract class ViewHolder extends RecyclerView.ViewHolder {
 
         private ExpandableAdapter mAdapter;
 
+        /**
+         * The positions of bind time, they are moved along with the changes of the adapter, the child position is
+         * negative for a parent item, and the parent position is {@link RecyclerView#NO_POSITION} if the item has been
+         * removed.
+         */
+        private int mParentPosition = RecyclerView.NO_POSITION;
+        private int mChildPosition = -1;
+        private int mPositionVersion = -1;
+
         public ViewHolder(@NonNull View itemView, ExpandableAdapter adapter) {
             super(itemView);
             this.mAdapter = adapter;
@@ -410,39 +1194,85 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
         /**
          * Determine if the current viewholder is a parent item.
          *
-         * @return true, otherwise is false.
+         * @return true, otherwise is false, also false if the item has been removed.
          */
         public final boolean isParentItem() {
-            return mAdapter.isParentItem(getAdapterPosition());
+            ensurePositions();
+            return mParentPosition != RecyclerView.NO_POSITION && mChildPosition < 0;
         }
 
         /**
          * Get the position of parent item.
+         *
+         * @return {@link RecyclerView#NO_POSITION} if the item has been removed.
          */
         public final int parentItemPosition() {
-            return mAdapter.parentItemPosition(getAdapterPosition());
+            ensurePositions();
+            return mParentPosition;
         }
 
         /**
          * Get the position of child item.
+         *
+         * @return {@link RecyclerView#NO_POSITION} if the item has been removed.
          */
         public final int childItemPosition() {
-            if (isParentItem()) throw new IllegalStateException("This item is not a child item.");
-            return mAdapter.childItemPosition(getAdapterPosition());
+            ensurePositions();
+            if (mParentPosition == RecyclerView.NO_POSITION) return RecyclerView.NO_POSITION;
+            if (mChildPosition < 0) throw new IllegalStateException("This item is not a child item.");
+            return mChildPosition;
         }
 
         /**
          * Parent item is expanded.
          *
-         * @return true, otherwise is false.
+         * @return true, otherwise is false, also false if the item has been removed.
          */
         public final boolean isParentExpanded() {
-            return mAdapter.isExpanded(parentItemPosition());
+            int parentPosition = parentItemPosition();
+            return parentPosition != RecyclerView.NO_POSITION && mAdapter.isExpanded(parentPosition);
+        }
+
+        /**
+         * Bring the positions of bind time up to date, it is O(1) unless the changes since then are not recorded.
+         */
+        private void ensurePositions() {
+            if (mPositionVersion == mAdapter.mPositionVersion) return;
+
+            if (!mAdapter.applyPositionOps(this)) {
+                int position = getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    // The adapter position is the position of the list, which may have header views.
+                    ViewParent parent = itemView.getParent();
+                    position -= AdapterWrapper.getHeaderCount(
+                        parent instanceof RecyclerView ? parent : mAdapter.mRecyclerView);
+                }
+                if (position < 0 || position >= mAdapter.getItemCount()) {
+                    mParentPosition = RecyclerView.NO_POSITION;
+                } else {
+                    mParentPosition = mAdapter.parentItemPosition(position);
+                    mChildPosition = mAdapter.isParentItem(position) ? -1 : mAdapter.childItemPosition(position);
+                }
+            }
+            mPositionVersion = mAdapter.mPositionVersion;
         }
     }
 
+    /**
+     * The subclass must call the super method, the index observes the notifications from here on.
+     */
     @Override
-    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+    public void onAttachedToRecyclerView(@NonNull final RecyclerView recyclerView) {
+        ApplicationInfo applicationInfo = recyclerView.getContext().getApplicationInfo();
+        mDebuggable = (applicationInfo.flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        mRecyclerView = recyclerView;
+        if (mAttachedCount++ == 0) {
+            // The data may have changed without notification while no list observed this adapter.
+            mIndexInvalid = true;
+            resetPositionOps();
+            registerAdapterDataObserver(mIndexObserver);
+        }
+
         RecyclerView.LayoutManager lm = recyclerView.getLayoutManager();
         if (lm instanceof GridLayoutManager) {
             final GridLayoutManager glm = (GridLayoutManager)lm;
@@ -451,7 +1281,10 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
             glm.setSpanSizeLookup(new GridLayoutManager.SpanSizeLookup() {
                 @Override
                 public int getSpanSize(int position) {
-                    if (isParentItem(position)) return glm.getSpanCount();
+                    // The positions of the lookup are the positions of the list, which may have header views.
+                    if (isParentItem(position - AdapterWrapper.getHeaderCount(recyclerView))) {
+                        return glm.getSpanCount();
+                    }
                     if (originLookup != null) return originLookup.getSpanSize(position);
                     return 1;
                 }
@@ -459,9 +1292,15 @@ public abstract class ExpandableAdapter<VH extends ExpandableAdapter.ViewHolder>
         }
     }
 
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        if (mRecyclerView == recyclerView) mRecyclerView = null;
+        if (--mAttachedCount == 0) unregisterAdapterDataObserver(mIndexObserver);
+    }
+
     @Override
     public void onViewAttachedToWindow(@NonNull VH holder) {
-        if (isParentItem(holder.getAdapterPosition())) {
+        if (holder.isParentItem()) {
             ViewGroup.LayoutParams lp = holder.itemView.getLayoutParams();
             if (lp instanceof StaggeredGridLayoutManager.LayoutParams) {
                 StaggeredGridLayoutManager.LayoutParams p = (StaggeredGridLayoutManager.LayoutParams)lp;
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import android.view.MotionEvent;
+
+/**
+ * Classifies a gesture as a click, a horizontal swipe or a vertical scroll. The decision is made once per gesture and
+ * does not change until the next down, the {@link SwipeRecyclerView} and its {@link SwipeMenuLayout}s share it, so
+ * they can never both take the same gesture.
+ */
+final class GestureArbiter {
+
+    /**
+     * The gesture has not moved beyond the touch slop, it is a click so far.
+     */
+    static final int GESTURE_UNDECIDED = 0;
+    /**
+     * The gesture belongs to the menu of item.
+     */
+    static final int GESTURE_HORIZONTAL = 1;
+    /**
+     * The gesture belongs to the list.
+     */
+    static final int GESTURE_VERTICAL = 2;
+
+    private final int mTouchSlop;
+
+    private int mDownX;
+    private int mDownY;
+    private int mGesture = GESTURE_UNDECIDED;
+
+    GestureArbiter(int touchSlop) {
+        this.mTouchSlop = touchSlop;
+    }
+
+    /**
+     * Feed the event, the coordinates only need to be relative to the same view during the gesture.
+     *
+     * @return true if the gesture has just been classified by this event.
+     */
+    public boolean onTouchEvent(MotionEvent ev) {
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN: {
+                mDownX = (int)ev.getX();
+                mDownY = (int)ev.getY();
+                mGesture = GESTURE_UNDECIDED;
+                break;
+            }
+            case MotionEvent.ACTION_MOVE: {
+                if (mGesture != GESTURE_UNDECIDED) break;
+
+                int disX = Math.abs((int)ev.getX() - mDownX);
+                int disY = Math.abs((int)ev.getY() - mDownY);
+                if (disX > mTouchSlop && disX > disY) {
+                    mGesture = GESTURE_HORIZONTAL;
+                    return true;
+                } else if (disY > mTouchSlop) {
+                    mGesture = GESTURE_VERTICAL;
+                    return true;
+                }
+                break;
+            }
+        }
+        return false;
+    }
+
+    public int getGesture() {
+        return mGesture;
+    }
+
+    public boolean isHorizontal() {
+        return mGesture == GESTURE_HORIZONTAL;
+    }
+
+    public boolean isVertical() {
+        return mGesture == GESTURE_VERTICAL;
+    }
+
+    /**
+     * The gesture has not moved beyond the touch slop.
+     */
+    public boolean isClick() {
+        return mGesture == GESTURE_UNDECIDED;
+    }
+
+    public int getDownX() {
+        return mDownX;
+    }
+
+    public int getDownY() {
+        return mDownY;
+    }
+}
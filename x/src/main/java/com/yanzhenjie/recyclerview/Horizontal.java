@@ -27,6 +27,9 @@ abstract class Horizontal {
     private int direction;
     private View menuView;
     protected Checker mChecker;
+    private int[] mSnapPoints = new int[2];
+    private int mSnapCount;
+    private int mMaxDistance;
 
     public Horizontal(int direction, View menuView) {
         this.direction = direction;
@@ -50,13 +53,25 @@ abstract class Horizontal {
 
     public abstract boolean isMenuOpenNotEqual(int scrollX);
 
-    public abstract void autoOpenMenu(OverScroller scroller, int scrollX, int duration);
-
-    public abstract void autoCloseMenu(OverScroller scroller, int scrollX, int duration);
+    /**
+     * Scroll the menu to the distance, the scroller works on the absolute value of scroll x.
+     *
+     * @param distance the distance from closed, 0 means close, the width of menu means open.
+     */
+    public void autoScrollTo(OverScroller scroller, int scrollX, int distance, int duration) {
+        scroller.startScroll(Math.abs(scrollX), 0, distance - Math.abs(scrollX), 0, duration);
+    }
 
     public abstract Checker checkXY(int x, int y);
 
-    public abstract boolean isClickOnContentView(int contentViewWidth, float x);
+    /**
+     * The click is on the visible part of the content, which is moved by the swipe offset.
+     *
+     * @param contentViewWidth the width of the content.
+     * @param scrollX the current swipe offset.
+     * @param x the x of the click.
+     */
+    public abstract boolean isClickOnContentView(int contentViewWidth, int scrollX, float x);
 
     public int getDirection() {
         return direction;
@@ -70,6 +85,120 @@ abstract class Horizontal {
         return menuView.getWidth();
     }
 
+    /**
+     * Set the distance that the menu can be dragged to, 0 means the width of menu.
+     */
+    public void setMaxDistance(int maxDistance) {
+        this.mMaxDistance = maxDistance;
+    }
+
+    /**
+     * Get the distance that the menu can be dragged to, it is beyond the width of menu if the menu has a full swipe.
+     */
+    public int getMaxDistance() {
+        return Math.max(mMaxDistance, menuView.getWidth());
+    }
+
+    /**
+     * Get the scroll x when the menu is completely open.
+     */
+    public int getOpenScrollX() {
+        return getScrollX(getMenuView().getWidth());
+    }
+
+    /**
+     * Get the scroll x when the menu is revealed by the distance.
+     */
+    public int getScrollX(int distance) {
+        return -distance * getDirection();
+    }
+
+    /**
+     * Get the distance from closed to the trailing edge of item of menu, the item is completely revealed there.
+     */
+    protected abstract int getItemEdge(View item, int menuWidth);
+
+    /**
+     * Collect the snap points after the menu is laid out, they are the distances from closed in ascending order, the
+     * first is 0 and the last is the width of menu.
+     *
+     * @param snapToItems the edge of each item is also a snap point.
+     */
+    public void updateSnapPoints(boolean snapToItems) {
+        int menuWidth = menuView.getWidth();
+        mSnapCount = 0;
+        addSnapPoint(0);
+        if (snapToItems && menuView instanceof ViewGroup) {
+            ViewGroup menuGroup = (ViewGroup)menuView;
+            for (int i = 0; i < menuGroup.getChildCount(); i++) {
+                View item = menuGroup.getChildAt(i);
+                if (item.getVisibility() != View.GONE) addSnapPoint(getItemEdge(item, menuWidth));
+            }
+        }
+        addSnapPoint(menuWidth);
+    }
+
+    private void addSnapPoint(int distance) {
+        if (distance < 0 || distance > menuView.getWidth()) return;
+        int index = searchSnapPoint(distance);
+        if (index < mSnapCount && mSnapPoints[index] == distance) return;
+
+        if (mSnapCount == mSnapPoints.length) {
+            int[] snapPoints = new int[mSnapCount * 2];
+            System.arraycopy(mSnapPoints, 0, snapPoints, 0, mSnapCount);
+            mSnapPoints = snapPoints;
+        }
+        System.arraycopy(mSnapPoints, index, mSnapPoints, index + 1, mSnapCount - index);
+        mSnapPoints[index] = distance;
+        mSnapCount++;
+    }
+
+    /**
+     * Get the index of the first snap point which is not less than the distance.
+     */
+    private int searchSnapPoint(int distance) {
+        int low = 0;
+        int high = mSnapCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (mSnapPoints[middle] < distance) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Find the snap point that the menu settles at.
+     *
+     * @param distance the current distance from closed.
+     * @param velocity the velocity of fling, positive opens the menu and negative closes it, 0 means no fling.
+     * @param openPercent the percent of the gap between two snap points, beyond which the menu settles at the farther.
+     *
+     * @return the distance from closed.
+     */
+    public int findSnapPoint(int distance, int velocity, float openPercent) {
+        if (mSnapCount == 0) return 0;
+
+        int index = searchSnapPoint(distance);
+        if (index == mSnapCount) return mSnapPoints[mSnapCount - 1];
+        int upper = mSnapPoints[index];
+        if (upper == distance) {
+            // Settled at a snap point, the fling moves it to the adjacent one.
+            if (velocity > 0) return mSnapPoints[Math.min(index + 1, mSnapCount - 1)];
+            if (velocity < 0) return mSnapPoints[Math.max(index - 1, 0)];
+            return upper;
+        }
+        if (index == 0) return upper;
+
+        int lower = mSnapPoints[index - 1];
+        if (velocity > 0) return upper;
+        if (velocity < 0) return lower;
+        return distance >= lower + (upper - lower) * openPercent ? upper : lower;
+    }
+
     public static final class Checker {
 
         public int x;
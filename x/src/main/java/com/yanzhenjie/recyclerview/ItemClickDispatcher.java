@@ -0,0 +1,137 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * The only click listener of the items and the menu items of a {@link SwipeRecyclerView}, it finds the holder and the
+ * menu item from the clicked view, so nothing is allocated when the holder is created or bound.
+ */
+final class ItemClickDispatcher implements View.OnClickListener, View.OnLongClickListener {
+
+    private OnItemClickListener mOnItemClickListener;
+    private OnItemLongClickListener mOnItemLongClickListener;
+    private OnItemMenuClickListener mOnItemMenuClickListener;
+
+    void setOnItemClickListener(OnItemClickListener onItemClickListener) {
+        this.mOnItemClickListener = onItemClickListener;
+    }
+
+    void setOnItemLongClickListener(OnItemLongClickListener onItemLongClickListener) {
+        this.mOnItemLongClickListener = onItemLongClickListener;
+    }
+
+    void setOnItemMenuClickListener(OnItemMenuClickListener onItemMenuClickListener) {
+        this.mOnItemMenuClickListener = onItemMenuClickListener;
+    }
+
+    boolean hasOnItemClickListener() {
+        return mOnItemClickListener != null;
+    }
+
+    boolean hasOnItemLongClickListener() {
+        return mOnItemLongClickListener != null;
+    }
+
+    /**
+     * The click is delivered even if the item view has been removed from the list, such as a click which is performed
+     * after the removal, and the position is {@link RecyclerView#NO_POSITION} if the item has been removed.
+     */
+    @Override
+    public void onClick(View v) {
+        ViewParent parent = v.getParent();
+        View itemView = findItemView(v);
+        ItemClickDispatcher dispatcher = findDispatcher(itemView);
+        int position = getAdapterPosition(itemView);
+        if (parent instanceof SwipeMenuView) {
+            dispatcher.dispatchMenuClick((SwipeMenuView)parent, v, position);
+        } else if (dispatcher.mOnItemClickListener != null) {
+            dispatcher.mOnItemClickListener.onItemClick(v, position);
+        }
+    }
+
+    @Override
+    public boolean onLongClick(View v) {
+        View itemView = findItemView(v);
+        ItemClickDispatcher dispatcher = findDispatcher(itemView);
+        if (dispatcher.mOnItemLongClickListener == null) return false;
+        dispatcher.mOnItemLongClickListener.onItemLongClick(v, getAdapterPosition(itemView));
+        return true;
+    }
+
+    /**
+     * Dispatch the click of a view which stands for the item but is not in the list, such as a pinned header.
+     */
+    void dispatchItemClick(View view, int adapterPosition) {
+        if (mOnItemClickListener != null) mOnItemClickListener.onItemClick(view, adapterPosition);
+    }
+
+    /**
+     * Dispatch the long click of a view which stands for the item but is not in the list.
+     */
+    boolean dispatchItemLongClick(View view, int adapterPosition) {
+        if (mOnItemLongClickListener == null) return false;
+        mOnItemLongClickListener.onItemLongClick(view, adapterPosition);
+        return true;
+    }
+
+    private void dispatchMenuClick(SwipeMenuView menuView, View menuItemView, int adapterPosition) {
+        if (mOnItemMenuClickListener == null) return;
+        SwipeMenuBridge menuBridge = new SwipeMenuBridge(menuView.getController(), menuView.getDirection(),
+            menuView.indexOfChild(menuItemView));
+        mOnItemMenuClickListener.onItemClick(menuBridge, adapterPosition);
+    }
+
+    /**
+     * Find the dispatcher of the list, the holder may be created by another list which shares the pool. If the item
+     * view is not in a list, this dispatcher is the one which was set to it.
+     */
+    private ItemClickDispatcher findDispatcher(View itemView) {
+        if (!(itemView.getParent() instanceof RecyclerView)) return this;
+        RecyclerView.Adapter adapter = ((RecyclerView)itemView.getParent()).getAdapter();
+        return adapter instanceof AdapterWrapper ? ((AdapterWrapper)adapter).getClickDispatcher() : this;
+    }
+
+    /**
+     * Get the adapter position of the holder of the item view, the layout params keep the holder after the item view
+     * is removed from the list.
+     */
+    private static int getAdapterPosition(View itemView) {
+        ViewGroup.LayoutParams params = itemView.getLayoutParams();
+        if (params instanceof RecyclerView.LayoutParams) {
+            return ((RecyclerView.LayoutParams)params).getViewAdapterPosition();
+        }
+        return RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * Find the child of the list which contains the view.
+     */
+    private static View findItemView(View view) {
+        View child = view;
+        ViewParent parent = view.getParent();
+        while (parent instanceof View && !(parent instanceof RecyclerView)) {
+            child = (View)parent;
+            parent = parent.getParent();
+        }
+        return child;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.content.res.XmlResourceParser;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.util.Xml;
+import android.view.InflateException;
+import android.view.ViewGroup;
+
+import com.yanzhenjie.recyclerview.x.R;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The parsed and immutable form of a menu xml resource, such as:
+ * <pre>
+ * &lt;menu android:orientation="horizontal"&gt;
+ *     &lt;item
+ *         android:layout_width="70dp"
+ *         android:layout_height="match_parent"
+ *         android:background="@color/red"
+ *         android:icon="@drawable/ic_delete"
+ *         android:title="@string/delete"
+ *         android:textColor="@android:color/white"
+ *         android:textSize="16sp"/&gt;
+ * &lt;/menu&gt;
+ * </pre>
+ * Each resource is parsed only once per theme and configuration, the attributes of the theme, such as
+ * {@code ?attr/colorAccent}, are resolved when it is parsed.
+ */
+final class MenuResource {
+
+    private static final String TAG_MENU = "menu";
+    private static final String TAG_ITEM = "item";
+
+    /**
+     * The menus of each theme, a theme is not held after its context is gone.
+     */
+    private static final Map<Resources.Theme, SparseArray<MenuResource>> sCache = new WeakHashMap<>();
+    private static boolean sCallbacksRegistered;
+
+    /**
+     * The cache is cleared when the configuration is changed, so the configuration is not compared for every menu.
+     */
+    private static final ComponentCallbacks CONFIGURATION_CALLBACKS = new ComponentCallbacks() {
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+            sCache.clear();
+        }
+
+        @Override
+        public void onLowMemory() {
+            sCache.clear();
+        }
+    };
+
+    /**
+     * Get the menu of the resource, parse it only if it is not in the cache.
+     *
+     * @param context context.
+     * @param menuRes xml resource of menu.
+     */
+    static MenuResource obtain(Context context, int menuRes) {
+        if (!sCallbacksRegistered) {
+            Context applicationContext = context.getApplicationContext();
+            if (applicationContext == null) applicationContext = context;
+            applicationContext.registerComponentCallbacks(CONFIGURATION_CALLBACKS);
+            sCallbacksRegistered = true;
+        }
+
+        Resources.Theme theme = context.getTheme();
+        SparseArray<MenuResource> menus = sCache.get(theme);
+        if (menus == null) {
+            menus = new SparseArray<>();
+            sCache.put(theme, menus);
+        }
+
+        MenuResource menuResource = menus.get(menuRes);
+        if (menuResource == null) {
+            menuResource = parse(context, menuRes);
+            menus.put(menuRes, menuResource);
+        }
+        return menuResource;
+    }
+
+    private static MenuResource parse(Context context, int menuRes) {
+        XmlResourceParser parser = context.getResources().getXml(menuRes);
+        try {
+            AttributeSet attrs = Xml.asAttributeSet(parser);
+            int orientation = SwipeMenu.HORIZONTAL;
+            List<Item> items = new ArrayList<>();
+
+            int eventType = parser.getEventType();
+            while (eventType != XmlPullParser.END_DOCUMENT) {
+                if (eventType == XmlPullParser.START_TAG) {
+                    String tagName = parser.getName();
+                    if (TAG_MENU.equals(tagName)) {
+                        TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.SwipeMenu);
+                        orientation = typedArray.getInt(R.styleable.SwipeMenu_android_orientation, orientation);
+                        typedArray.recycle();
+                    } else if (TAG_ITEM.equals(tagName)) {
+                        items.add(new Item(context, attrs));
+                    } else {
+                        throw new InflateException("Unexpected tag in menu xml: " + tagName);
+                    }
+                }
+                eventType = parser.next();
+            }
+            return new MenuResource(menuRes, orientation, items.toArray(new Item[items.size()]));
+        } catch (XmlPullParserException | IOException e) {
+            throw new InflateException("Error inflating menu xml.", e);
+        } finally {
+            parser.close();
+        }
+    }
+
+    private final int mMenuRes;
+    private final int mOrientation;
+    private final Item[] mItems;
+
+    private MenuResource(int menuRes, int orientation, Item[] items) {
+        this.mMenuRes = menuRes;
+        this.mOrientation = orientation;
+        this.mItems = items;
+    }
+
+    public int getMenuRes() {
+        return mMenuRes;
+    }
+
+    @SwipeMenu.OrientationMode
+    public int getOrientation() {
+        return mOrientation;
+    }
+
+    public int getItemCount() {
+        return mItems.length;
+    }
+
+    /**
+     * Create the menu items, the drawables are created from the cached constant state.
+     */
+    public void addMenuItems(Context context, List<SwipeMenuItem> outItems) {
+        for (Item item : mItems) {
+            outItems.add(item.newMenuItem(context));
+        }
+    }
+
+    private static final class Item {
+
+        private final Drawable.ConstantState mBackground;
+        private final Drawable.ConstantState mIcon;
+        private final String mTitle;
+        private final ColorStateList mTitleColor;
+        private final int mTitleSize;
+        private final int mTextAppearance;
+        private final int mWidth;
+        private final int mHeight;
+        private final int mWeight;
+
+        Item(Context context, AttributeSet attrs) {
+            TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.SwipeMenuItem);
+            mBackground = constantState(typedArray.getDrawable(R.styleable.SwipeMenuItem_android_background));
+            mIcon = constantState(typedArray.getDrawable(R.styleable.SwipeMenuItem_android_icon));
+            mTitle = typedArray.getString(R.styleable.SwipeMenuItem_android_title);
+            mTitleColor = typedArray.getColorStateList(R.styleable.SwipeMenuItem_android_textColor);
+            float textSize = typedArray.getDimension(R.styleable.SwipeMenuItem_android_textSize, 0);
+            mTitleSize = Math.round(textSize / context.getResources().getDisplayMetrics().scaledDensity);
+            mTextAppearance = typedArray.getResourceId(R.styleable.SwipeMenuItem_android_textAppearance, 0);
+            mWidth = typedArray.getLayoutDimension(R.styleable.SwipeMenuItem_android_layout_width,
+                ViewGroup.LayoutParams.WRAP_CONTENT);
+            mHeight = typedArray.getLayoutDimension(R.styleable.SwipeMenuItem_android_layout_height,
+                ViewGroup.LayoutParams.WRAP_CONTENT);
+            mWeight = (int)typedArray.getFloat(R.styleable.SwipeMenuItem_android_layout_weight, 0);
+            typedArray.recycle();
+        }
+
+        SwipeMenuItem newMenuItem(Context context) {
+            Resources resources = context.getResources();
+            SwipeMenuItem item = new SwipeMenuItem(context);
+            if (mBackground != null) item.setBackground(mBackground.newDrawable(resources));
+            if (mIcon != null) item.setImage(mIcon.newDrawable(resources));
+            item.setText(mTitle);
+            if (mTitleColor != null) item.setTextColor(mTitleColor);
+            item.setTextSize(mTitleSize);
+            item.setTextAppearance(mTextAppearance);
+            item.setWidth(mWidth);
+            item.setHeight(mHeight);
+            item.setWeight(mWeight);
+            return item;
+        }
+
+        private static Drawable.ConstantState constantState(Drawable drawable) {
+            return drawable == null ? null : drawable.getConstantState();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import android.util.SparseIntArray;
+
+import androidx.annotation.XmlRes;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * A {@link SwipeMenuCreator} that creates menus from xml resources, the menus can be attached to all items or to the
+ * view type of item. Override {@link #getLeftMenuRes(int, int)} and {@link #getRightMenuRes(int, int)} to attach the
+ * menus by position.
+ *
+ * @see SwipeMenu#inflate(int)
+ */
+public class ResourceMenuCreator implements SwipeMenuCreator {
+
+    private final SwipeRecyclerView mRecyclerView;
+
+    private final SparseIntArray mLeftMenuArray = new SparseIntArray();
+    private final SparseIntArray mRightMenuArray = new SparseIntArray();
+    private int mLeftMenuRes;
+    private int mRightMenuRes;
+
+    public ResourceMenuCreator(SwipeRecyclerView recyclerView) {
+        this.mRecyclerView = recyclerView;
+    }
+
+    /**
+     * Set the menu on the left of all items.
+     *
+     * @param menuRes xml resource of menu, 0 means no menu.
+     */
+    public void setLeftMenu(@XmlRes int menuRes) {
+        this.mLeftMenuRes = menuRes;
+    }
+
+    /**
+     * Set the menu on the right of all items.
+     *
+     * @param menuRes xml resource of menu, 0 means no menu.
+     */
+    public void setRightMenu(@XmlRes int menuRes) {
+        this.mRightMenuRes = menuRes;
+    }
+
+    /**
+     * Set the menu on the left of the items of view type, it takes precedence over {@link #setLeftMenu(int)}.
+     *
+     * @param viewType view type of the origin adapter.
+     * @param menuRes xml resource of menu, 0 means no menu.
+     */
+    public void setLeftMenu(int viewType, @XmlRes int menuRes) {
+        mLeftMenuArray.put(viewType, menuRes);
+    }
+
+    /**
+     * Set the menu on the right of the items of view type, it takes precedence over {@link #setRightMenu(int)}.
+     *
+     * @param viewType view type of the origin adapter.
+     * @param menuRes xml resource of menu, 0 means no menu.
+     */
+    public void setRightMenu(int viewType, @XmlRes int menuRes) {
+        mRightMenuArray.put(viewType, menuRes);
+    }
+
+    @Override
+    public void onCreateMenu(SwipeMenu leftMenu, SwipeMenu rightMenu, int position) {
+        RecyclerView.Adapter adapter = mRecyclerView.getOriginAdapter();
+        int viewType = adapter == null ? 0 : adapter.getItemViewType(position);
+
+        int leftMenuRes = getLeftMenuRes(position, viewType);
+        if (leftMenuRes != 0) leftMenu.inflate(leftMenuRes);
+
+        int rightMenuRes = getRightMenuRes(position, viewType);
+        if (rightMenuRes != 0) rightMenu.inflate(rightMenuRes);
+    }
+
+    /**
+     * Get the menu resource on the left of item.
+     *
+     * @param position position of item.
+     * @param viewType view type of item.
+     *
+     * @return xml resource of menu, 0 means no menu.
+     */
+    protected int getLeftMenuRes(int position, int viewType) {
+        return mLeftMenuArray.get(viewType, mLeftMenuRes);
+    }
+
+    /**
+     * Get the menu resource on the right of item.
+     *
+     * @param position position of item.
+     * @param viewType view type of item.
+     *
+     * @return xml resource of menu, 0 means no menu.
+     */
+    protected int getRightMenuRes(int position, int viewType) {
+        return mRightMenuArray.get(viewType, mRightMenuRes);
+    }
+}
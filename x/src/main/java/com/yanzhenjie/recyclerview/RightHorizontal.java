@@ -16,7 +16,6 @@
 package com.yanzhenjie.recyclerview;
 
 import android.view.View;
-import android.widget.OverScroller;
 
 /**
  * Created by Yan Zhenjie on 2016/7/22.
@@ -39,13 +38,8 @@ class RightHorizontal extends Horizontal {
     }
 
     @Override
-    public void autoOpenMenu(OverScroller scroller, int scrollX, int duration) {
-        scroller.startScroll(Math.abs(scrollX), 0, getMenuView().getWidth() - Math.abs(scrollX), 0, duration);
-    }
-
-    @Override
-    public void autoCloseMenu(OverScroller scroller, int scrollX, int duration) {
-        scroller.startScroll(-Math.abs(scrollX), 0, Math.abs(scrollX), 0, duration);
+    protected int getItemEdge(View item, int menuWidth) {
+        return item.getRight();
     }
 
     @Override
@@ -59,14 +53,14 @@ class RightHorizontal extends Horizontal {
         if (mChecker.x < 0) {
             mChecker.x = 0;
         }
-        if (mChecker.x > getMenuView().getWidth()) {
-            mChecker.x = getMenuView().getWidth();
+        if (mChecker.x > getMaxDistance()) {
+            mChecker.x = getMaxDistance();
         }
         return mChecker;
     }
 
     @Override
-    public boolean isClickOnContentView(int contentViewWidth, float x) {
-        return x < (contentViewWidth - getMenuView().getWidth());
+    public boolean isClickOnContentView(int contentViewWidth, int scrollX, float x) {
+        return x < (contentViewWidth - Math.abs(scrollX));
     }
 }
\ No newline at end of file
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+/**
+ * A damped spring that moves a value to the target, it is solved analytically for the elapsed time of every frame, so
+ * the result does not depend on the frame rate. It can be restarted at any time without allocation.
+ */
+final class Spring {
+
+    /**
+     * Stiffness of a spring which settles the menu quickly.
+     */
+    public static final float STIFFNESS_MEDIUM = 1500f;
+    /**
+     * Damping ratio of a spring which does not overshoot.
+     */
+    public static final float DAMPING_RATIO_NO_BOUNCY = 1f;
+
+    private static final float VALUE_THRESHOLD = 0.5f;
+    private static final float VELOCITY_THRESHOLD = VALUE_THRESHOLD * 62.5f;
+    /**
+     * A lightly damped spring takes very long to come within the thresholds, it is snapped to the target after this.
+     */
+    private static final long MAX_DURATION = 3000;
+
+    private float mStiffness = STIFFNESS_MEDIUM;
+    private float mDampingRatio = DAMPING_RATIO_NO_BOUNCY;
+
+    private float mValue;
+    private float mVelocity;
+    private float mTarget;
+    private long mStartTime;
+    private long mLastFrameTime;
+    private boolean mFinished = true;
+
+    public void setStiffness(float stiffness) {
+        if (stiffness <= 0) throw new IllegalArgumentException("The stiffness must be positive: " + stiffness);
+        this.mStiffness = stiffness;
+    }
+
+    /**
+     * Set the damping ratio, 0 never settles, so it must be positive.
+     */
+    public void setDampingRatio(float dampingRatio) {
+        if (!(dampingRatio > 0)) {
+            throw new IllegalArgumentException("The damping ratio must be positive: " + dampingRatio);
+        }
+        this.mDampingRatio = dampingRatio;
+    }
+
+    /**
+     * Start the spring.
+     *
+     * @param value start value.
+     * @param velocity start velocity, units per second.
+     * @param target final value.
+     * @param frameTime the time of current frame, in milliseconds.
+     */
+    public void start(float value, float velocity, float target, long frameTime) {
+        mValue = value;
+        mVelocity = velocity;
+        mTarget = target;
+        mStartTime = frameTime;
+        mLastFrameTime = frameTime;
+        mFinished = false;
+    }
+
+    /**
+     * Stop the spring where it is.
+     */
+    public void cancel() {
+        mFinished = true;
+        mVelocity = 0;
+    }
+
+    public boolean isFinished() {
+        return mFinished;
+    }
+
+    public float getValue() {
+        return mValue;
+    }
+
+    /**
+     * Get the velocity if the spring is running, otherwise is 0.
+     */
+    public float getVelocity() {
+        return mFinished ? 0 : mVelocity;
+    }
+
+    public float getTarget() {
+        return mTarget;
+    }
+
+    /**
+     * Compute the value of the frame.
+     *
+     * @param frameTime the time of current frame, in milliseconds.
+     *
+     * @return true if the spring is not yet finished.
+     */
+    public boolean computeValue(long frameTime) {
+        if (mFinished) return false;
+
+        double t = Math.max(0, frameTime - mLastFrameTime) / 1000.0;
+        mLastFrameTime = frameTime;
+
+        double x = mValue - mTarget;
+        double v = mVelocity;
+        double w0 = Math.sqrt(mStiffness);
+        double zeta = mDampingRatio;
+        double displacement;
+        double velocity;
+        if (zeta > 1) { // over damped.
+            double root = w0 * Math.sqrt(zeta * zeta - 1);
+            double gammaPlus = -zeta * w0 + root;
+            double gammaMinus = -zeta * w0 - root;
+            double coeffB = (gammaMinus * x - v) / (gammaMinus - gammaPlus);
+            double coeffA = x - coeffB;
+            double expMinus = Math.exp(gammaMinus * t);
+            double expPlus = Math.exp(gammaPlus * t);
+            displacement = coeffA * expMinus + coeffB * expPlus;
+            velocity = coeffA * gammaMinus * expMinus + coeffB * gammaPlus * expPlus;
+        } else if (zeta == 1) { // critically damped.
+            double coeffB = v + w0 * x;
+            double exp = Math.exp(-w0 * t);
+            displacement = (x + coeffB * t) * exp;
+            velocity = (x + coeffB * t) * exp * -w0 + coeffB * exp;
+        } else { // under damped.
+            double dampedFreq = w0 * Math.sqrt(1 - zeta * zeta);
+            double sinCoeff = (zeta * w0 * x + v) / dampedFreq;
+            double exp = Math.exp(-zeta * w0 * t);
+            double cos = Math.cos(dampedFreq * t);
+            double sin = Math.sin(dampedFreq * t);
+            displacement = exp * (x * cos + sinCoeff * sin);
+            velocity = displacement * -zeta * w0 + exp * (-dampedFreq * x * sin + dampedFreq * sinCoeff * cos);
+        }
+
+        mValue = (float)(mTarget + displacement);
+        mVelocity = (float)velocity;
+        boolean settled = Math.abs(displacement) < VALUE_THRESHOLD && Math.abs(velocity) < VELOCITY_THRESHOLD;
+        if (settled || frameTime - mStartTime >= MAX_DURATION) {
+            mValue = mTarget;
+            mVelocity = 0;
+            mFinished = true;
+        }
+        return !mFinished;
+    }
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import android.graphics.Canvas;
+import android.view.HapticFeedbackConstants;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Pins the header item of the section at the top of a vertical list, such as the parent item of an
+ * {@link ExpandableAdapter}, the items are still recycled. The pinned header is drawn from one cached holder, it is
+ * bound again only when the section changes, and it is pushed up by the header of the next section.
+ *
+ * <p>A click on the pinned header goes to the real header item, by {@link OnHeaderClickListener}, or by the
+ * {@link OnItemClickListener} of {@link SwipeRecyclerView}, and so does a long click. The pinned header owns the
+ * gestures which start on it, the item drawn under it never gets them, and a drag on it scrolls the list.</p>
+ *
+ * <pre>
+ * StickyHeaderDecoration decoration = new StickyHeaderDecoration(expandableAdapter);
+ * decoration.attachToRecyclerView(recyclerView);
+ * </pre>
+ *
+ * <p>The positions are the positions of the origin adapter, the header views of {@link SwipeRecyclerView} are not
+ * counted.</p>
+ */
+public class StickyHeaderDecoration extends RecyclerView.ItemDecoration implements RecyclerView.OnItemTouchListener {
+
+    /**
+     * The sections of an adapter.
+     */
+    public interface SectionCallback {
+
+        /**
+         * Get the position of the header item of the section which contains the item.
+         *
+         * @param position position of item.
+         *
+         * @return the position of the header item, or {@link RecyclerView#NO_POSITION} if the item is not in a section.
+         */
+        int getHeaderPosition(int position);
+    }
+
+    /**
+     * The pinned header is clicked.
+     */
+    public interface OnHeaderClickListener {
+
+        /**
+         * @param headerView the pinned header view.
+         * @param position position of the header item.
+         */
+        void onHeaderClick(View headerView, int position);
+    }
+
+    /**
+     * The pinned header is long clicked.
+     */
+    public interface OnHeaderLongClickListener {
+
+        /**
+         * @param headerView the pinned header view.
+         * @param position position of the header item.
+         *
+         * @return true if the long click is consumed.
+         */
+        boolean onHeaderLongClick(View headerView, int position);
+    }
+
+    private final SectionCallback mSectionCallback;
+    private OnHeaderClickListener mOnHeaderClickListener;
+    private OnHeaderLongClickListener mOnHeaderLongClickListener;
+
+    private RecyclerView mRecyclerView;
+    private RecyclerView.Adapter mAdapter;
+    private RecyclerView.ViewHolder mHeaderHolder;
+    private int mHeaderPosition = RecyclerView.NO_POSITION;
+    private int mHeaderWidth;
+
+    /**
+     * The bounds of the pinned header in the list, the top is negative while it is pushed up.
+     */
+    private boolean mHeaderShown;
+    private int mHeaderTop;
+    private int mHeaderBottom;
+
+    private int mTouchSlop;
+    private int mMaximumFlingVelocity;
+    private VelocityTracker mVelocityTracker;
+
+    /**
+     * The gesture started on the pinned header, it is pressed until it is dragged, long clicked or released.
+     */
+    private boolean mClaimed;
+    private boolean mPressed;
+    private boolean mDragging;
+    private float mDownX;
+    private float mDownY;
+    private float mLastY;
+
+    private final Runnable mLongPressRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!mPressed || mRecyclerView == null || mHeaderHolder == null) return;
+            mPressed = false;
+            if (dispatchHeaderLongClick(mRecyclerView)) {
+                mRecyclerView.performHapticFeedback(HapticFeedbackConstants.LONG_PRESS);
+            }
+        }
+    };
+
+    private final RecyclerView.AdapterDataObserver mDataObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            mHeaderPosition = RecyclerView.NO_POSITION;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            if (mHeaderPosition >= positionStart && mHeaderPosition < positionStart + itemCount) {
+                mHeaderPosition = RecyclerView.NO_POSITION;
+            }
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mHeaderPosition = RecyclerView.NO_POSITION;
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mHeaderPosition = RecyclerView.NO_POSITION;
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            mHeaderPosition = RecyclerView.NO_POSITION;
+        }
+    };
+
+    /**
+     * Pin the parent items of the adapter.
+     */
+    public StickyHeaderDecoration(@NonNull final ExpandableAdapter<?> adapter) {
+        this(new SectionCallback() {
+            @Override
+            public int getHeaderPosition(int position) {
+                if (adapter.isParentItem(position)) return position;
+                return position - adapter.childItemPosition(position) - 1;
+            }
+        });
+    }
+
+    public StickyHeaderDecoration(@NonNull SectionCallback sectionCallback) {
+        this.mSectionCallback = sectionCallback;
+    }
+
+    public void setOnHeaderClickListener(OnHeaderClickListener listener) {
+        this.mOnHeaderClickListener = listener;
+    }
+
+    public void setOnHeaderLongClickListener(OnHeaderLongClickListener listener) {
+        this.mOnHeaderLongClickListener = listener;
+    }
+
+    /**
+     * Add this decoration and its touch listener to the list, or remove them from the previous list if it is null.
+     */
+    public void attachToRecyclerView(@Nullable RecyclerView recyclerView) {
+        if (mRecyclerView == recyclerView) return;
+
+        if (mRecyclerView != null) {
+            mRecyclerView.removeItemDecoration(this);
+            mRecyclerView.removeOnItemTouchListener(this);
+            mRecyclerView.removeCallbacks(mLongPressRunnable);
+            setAdapter(null);
+            mClaimed = false;
+            mPressed = false;
+            if (mVelocityTracker != null) {
+                mVelocityTracker.recycle();
+                mVelocityTracker = null;
+            }
+        }
+        mRecyclerView = recyclerView;
+        if (recyclerView != null) {
+            ViewConfiguration configuration = ViewConfiguration.get(recyclerView.getContext());
+            mTouchSlop = configuration.getScaledTouchSlop();
+            mMaximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+            recyclerView.addItemDecoration(this);
+            recyclerView.addOnItemTouchListener(this);
+        }
+    }
+
+    private void setAdapter(RecyclerView.Adapter adapter) {
+        if (mAdapter == adapter) return;
+
+        if (mAdapter != null) mAdapter.unregisterAdapterDataObserver(mDataObserver);
+        mAdapter = adapter;
+        if (adapter != null) adapter.registerAdapterDataObserver(mDataObserver);
+        mHeaderHolder = null;
+        mHeaderPosition = RecyclerView.NO_POSITION;
+    }
+
+    @Override
+    public void onDrawOver(@NonNull Canvas c, @NonNull RecyclerView parent, @NonNull RecyclerView.State state) {
+        mHeaderShown = false;
+        RecyclerView.LayoutManager layoutManager = parent.getLayoutManager();
+        if (layoutManager == null || !layoutManager.canScrollVertically()) return;
+
+        setAdapter(getOriginAdapter(parent));
+        if (mAdapter == null) return;
+
+        int top = parent.getPaddingTop();
+        int childCount = parent.getChildCount();
+        int headerPosition = RecyclerView.NO_POSITION;
+        int firstIndex = 0;
+        for (; firstIndex < childCount; firstIndex++) {
+            View child = parent.getChildAt(firstIndex);
+            if (child.getBottom() <= top) continue;
+
+            int position = getOriginPosition(parent, child);
+            if (position != RecyclerView.NO_POSITION) {
+                headerPosition = mSectionCallback.getHeaderPosition(position);
+                break;
+            }
+        }
+        if (headerPosition == RecyclerView.NO_POSITION) return;
+
+        View headerView = bindHeader(parent, headerPosition);
+        int headerHeight = headerView.getHeight();
+
+        // The header of the next section pushes the pinned header up.
+        int offset = 0;
+        for (int i = firstIndex + 1; i < childCount; i++) {
+            View child = parent.getChildAt(i);
+            int position = getOriginPosition(parent, child);
+            if (position == RecyclerView.NO_POSITION || position == headerPosition) continue;
+            if (mSectionCallback.getHeaderPosition(position) != position) continue;
+
+            if (child.getTop() < top + headerHeight) offset = Math.max(child.getTop() - top, 0) - headerHeight;
+            break;
+        }
+
+        mHeaderShown = true;
+        mHeaderTop = top + offset;
+        mHeaderBottom = mHeaderTop + headerHeight;
+
+        int saveCount = c.save();
+        c.clipRect(parent.getPaddingLeft(), top, parent.getWidth() - parent.getPaddingRight(), parent.getHeight());
+        c.translate(parent.getPaddingLeft(), mHeaderTop);
+        headerView.draw(c);
+        c.restoreToCount(saveCount);
+    }
+
+    /**
+     * Bind the cached holder to the header item, it is bound again only when the header item has changed.
+     */
+    @SuppressWarnings("unchecked")
+    private View bindHeader(RecyclerView parent, int headerPosition) {
+        int width = parent.getWidth() - parent.getPaddingLeft() - parent.getPaddingRight();
+        if (headerPosition == mHeaderPosition && width == mHeaderWidth) return mHeaderHolder.itemView;
+
+        int viewType = mAdapter.getItemViewType(headerPosition);
+        if (mHeaderHolder == null || mHeaderHolder.getItemViewType() != viewType) {
+            mHeaderHolder = mAdapter.createViewHolder(parent, viewType);
+        }
+        if (headerPosition != mHeaderPosition) mAdapter.bindViewHolder(mHeaderHolder, headerPosition);
+        mHeaderPosition = headerPosition;
+        mHeaderWidth = width;
+
+        View headerView = mHeaderHolder.itemView;
+        ViewGroup.LayoutParams params = headerView.getLayoutParams();
+        int widthSpec = View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY);
+        int heightSpec;
+        if (params != null && params.height >= 0) {
+            heightSpec = View.MeasureSpec.makeMeasureSpec(params.height, View.MeasureSpec.EXACTLY);
+        } else {
+            heightSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        }
+        headerView.measure(widthSpec, heightSpec);
+        headerView.layout(0, 0, headerView.getMeasuredWidth(), headerView.getMeasuredHeight());
+        return headerView;
+    }
+
+    /**
+     * The gesture which starts on the pinned header is claimed on the down event, so the item under it gets nothing,
+     * and the following events are handled by {@link #onTouchEvent(RecyclerView, MotionEvent)}.
+     */
+    @Override
+    public boolean onInterceptTouchEvent(@NonNull RecyclerView rv, @NonNull MotionEvent e) {
+        if (e.getActionMasked() == MotionEvent.ACTION_DOWN) mClaimed = isInHeader(rv, e);
+        if (!mClaimed) return false;
+
+        onTouchEvent(rv, e);
+        return true;
+    }
+
+    @Override
+    public void onTouchEvent(@NonNull RecyclerView rv, @NonNull MotionEvent e) {
+        VelocityTracker velocityTracker = getVelocityTracker(rv);
+        switch (e.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN: {
+                velocityTracker.clear();
+                velocityTracker.addMovement(e);
+                mPressed = true;
+                mDragging = false;
+                mDownX = e.getX();
+                mDownY = e.getY();
+                mLastY = mDownY;
+                rv.postDelayed(mLongPressRunnable, ViewConfiguration.getLongPressTimeout());
+                break;
+            }
+            case MotionEvent.ACTION_MOVE: {
+                velocityTracker.addMovement(e);
+                if (!mDragging &&
+                    (Math.abs(e.getX() - mDownX) > mTouchSlop || Math.abs(e.getY() - mDownY) > mTouchSlop)) {
+                    mDragging = true;
+                    mPressed = false;
+                    rv.removeCallbacks(mLongPressRunnable);
+                    mLastY = e.getY();
+                }
+                if (mDragging) {
+                    int dy = (int)(mLastY - e.getY());
+                    mLastY -= dy;
+                    if (dy != 0) rv.scrollBy(0, dy);
+                }
+                break;
+            }
+            case MotionEvent.ACTION_UP: {
+                velocityTracker.addMovement(e);
+                rv.removeCallbacks(mLongPressRunnable);
+                if (mDragging) {
+                    velocityTracker.computeCurrentVelocity(1000, mMaximumFlingVelocity);
+                    rv.fling(0, (int)-velocityTracker.getYVelocity());
+                } else if (mPressed && isInHeader(rv, e)) {
+                    rv.playSoundEffect(SoundEffectConstants.CLICK);
+                    dispatchHeaderClick(rv);
+                }
+                mClaimed = false;
+                mPressed = false;
+                break;
+            }
+            case MotionEvent.ACTION_CANCEL: {
+                rv.removeCallbacks(mLongPressRunnable);
+                mClaimed = false;
+                mPressed = false;
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+    }
+
+    /**
+     * The header shares the tracker of {@link SwipeRecyclerView}, only one gesture is handled at a time.
+     */
+    private VelocityTracker getVelocityTracker(RecyclerView rv) {
+        if (rv instanceof SwipeRecyclerView) return ((SwipeRecyclerView)rv).obtainVelocityTracker();
+        if (mVelocityTracker == null) mVelocityTracker = VelocityTracker.obtain();
+        return mVelocityTracker;
+    }
+
+    private boolean isInHeader(RecyclerView rv, MotionEvent e) {
+        return mHeaderShown && e.getY() >= Math.max(mHeaderTop, rv.getPaddingTop()) && e.getY() < mHeaderBottom &&
+            e.getX() >= rv.getPaddingLeft() && e.getX() < rv.getWidth() - rv.getPaddingRight();
+    }
+
+    private void dispatchHeaderClick(RecyclerView rv) {
+        View headerView = mHeaderHolder.itemView;
+        if (mOnHeaderClickListener != null) {
+            mOnHeaderClickListener.onHeaderClick(headerView, mHeaderPosition);
+            return;
+        }
+
+        int adapterPosition = mHeaderPosition + getHeaderCount(rv);
+        RecyclerView.Adapter adapter = rv.getAdapter();
+        if (adapter instanceof AdapterWrapper) {
+            ((AdapterWrapper)adapter).getClickDispatcher().dispatchItemClick(headerView, adapterPosition);
+            return;
+        }
+
+        RecyclerView.ViewHolder holder = rv.findViewHolderForAdapterPosition(adapterPosition);
+        if (holder != null) holder.itemView.performClick();
+    }
+
+    private boolean dispatchHeaderLongClick(RecyclerView rv) {
+        View headerView = mHeaderHolder.itemView;
+        if (mOnHeaderLongClickListener != null) {
+            return mOnHeaderLongClickListener.onHeaderLongClick(headerView, mHeaderPosition);
+        }
+
+        int adapterPosition = mHeaderPosition + getHeaderCount(rv);
+        RecyclerView.Adapter adapter = rv.getAdapter();
+        if (adapter instanceof AdapterWrapper) {
+            return ((AdapterWrapper)adapter).getClickDispatcher().dispatchItemLongClick(headerView, adapterPosition);
+        }
+
+        RecyclerView.ViewHolder holder = rv.findViewHolderForAdapterPosition(adapterPosition);
+        return holder != null && holder.itemView.performLongClick();
+    }
+
+    private static RecyclerView.Adapter getOriginAdapter(RecyclerView parent) {
+        if (parent instanceof SwipeRecyclerView) return ((SwipeRecyclerView)parent).getOriginAdapter();
+        return parent.getAdapter();
+    }
+
+    private static int getHeaderCount(RecyclerView parent) {
+        if (parent instanceof SwipeRecyclerView) return ((SwipeRecyclerView)parent).getHeaderCount();
+        return 0;
+    }
+
+    /**
+     * Get the position of the child in the origin adapter, or {@link RecyclerView#NO_POSITION} if it is a header view,
+     * a footer view, or it is being removed.
+     */
+    private int getOriginPosition(RecyclerView parent, View child) {
+        int position = parent.getChildAdapterPosition(child);
+        if (position == RecyclerView.NO_POSITION) return position;
+
+        position -= getHeaderCount(parent);
+        if (position < 0 || position >= mAdapter.getItemCount()) return RecyclerView.NO_POSITION;
+        return position;
+    }
+}
@@ -25,6 +25,7 @@ import java.util.List;
 import androidx.annotation.FloatRange;
 import androidx.annotation.IntDef;
 import androidx.annotation.IntRange;
+import androidx.annotation.XmlRes;
 
 /**
  * Created by Yan Zhenjie on 2016/7/22.
@@ -41,6 +42,10 @@ public class SwipeMenu {
     private SwipeMenuLayout mMenuLayout;
     private int mOrientation;
     private List<SwipeMenuItem> mSwipeMenuItems;
+    private MenuResource mMenuResource;
+    private boolean mSnapToItems;
+    private int mFullSwipeItem = -1;
+    private float mFullSwipeThreshold = 0.5f;
 
     public SwipeMenu(SwipeMenuLayout menuLayout) {
         this.mMenuLayout = menuLayout;
@@ -66,6 +71,98 @@ public class SwipeMenu {
         mMenuLayout.setScrollerDuration(scrollerDuration);
     }
 
+    /**
+     * Set whether the menu is settled by a spring which takes over the velocity of the finger.
+     *
+     * @param enabled true means spring, otherwise the menu is settled in the duration.
+     */
+    public void setSpringEnabled(boolean enabled) {
+        mMenuLayout.setSpringEnabled(enabled);
+    }
+
+    /**
+     * Set the spring that settles the menu.
+     *
+     * @param stiffness stiffness of spring, such as 1500F.
+     * @param dampingRatio damping ratio of spring, 1F means no bouncy, it must be positive.
+     */
+    public void setSpring(@FloatRange(from = 0, fromInclusive = false) float stiffness,
+        @FloatRange(from = 0, fromInclusive = false) float dampingRatio) {
+        mMenuLayout.setSpring(stiffness, dampingRatio);
+    }
+
+    /**
+     * Set whether the menus are skipped in measure and layout while they are completely closed.
+     *
+     * @param lazyMenuMeasure true means skip, otherwise false.
+     */
+    public void setLazyMenuMeasure(boolean lazyMenuMeasure) {
+        mMenuLayout.setLazyMenuMeasure(lazyMenuMeasure);
+    }
+
+    /**
+     * Set the way to reveal the menu.
+     *
+     * @param revealMode use {@link SwipeMenuLayout#REVEAL_SCROLL} or {@link SwipeMenuLayout#REVEAL_TRANSLATION}.
+     */
+    public void setRevealMode(@SwipeMenuLayout.RevealMode int revealMode) {
+        mMenuLayout.setRevealMode(revealMode);
+    }
+
+    /**
+     * Set whether the content is promoted to a hardware layer while it is dragged, only works in {@link
+     * SwipeMenuLayout#REVEAL_TRANSLATION} mode.
+     *
+     * @param enabled true means promote, otherwise false.
+     */
+    public void setDragLayerEnabled(boolean enabled) {
+        mMenuLayout.setDragLayerEnabled(enabled);
+    }
+
+    /**
+     * Set whether the menu can also rest where each item is completely revealed, such as peeking at the first item,
+     * besides closed and open. The fling settles the menu at the adjacent rest position.
+     *
+     * @param snapToItems true means rest at items, otherwise only at closed and open.
+     */
+    public void setSnapToItems(boolean snapToItems) {
+        this.mSnapToItems = snapToItems;
+    }
+
+    public boolean isSnapToItems() {
+        return mSnapToItems;
+    }
+
+    /**
+     * Set the item that is clicked by the full swipe, the menu can be dragged beyond its width, the release beyond
+     * the threshold clicks the item directly and closes the menu.
+     *
+     * @param position position of the item in the menu, -1 means no full swipe.
+     *
+     * @see #setFullSwipeThreshold(float)
+     */
+    public void setFullSwipeItem(@IntRange(from = -1) int position) {
+        this.mFullSwipeItem = position;
+    }
+
+    public int getFullSwipeItem() {
+        return mFullSwipeItem;
+    }
+
+    /**
+     * Set the threshold of the full swipe, it is a percentage of the width of item and never less than the width of
+     * menu.
+     *
+     * @param threshold such as 0.5F.
+     */
+    public void setFullSwipeThreshold(@FloatRange(from = 0, to = 1) float threshold) {
+        this.mFullSwipeThreshold = threshold;
+    }
+
+    public float getFullSwipeThreshold() {
+        return mFullSwipeThreshold;
+    }
+
     /**
      * Set the menu mOrientation.
      *
@@ -88,19 +185,45 @@ public class SwipeMenu {
         return mOrientation;
     }
 
+    /**
+     * Inflate the menu from xml resource, the orientation and items of resource will replace the current.
+     *
+     * <p>The resource is parsed only once per configuration, the menu view that was created from the same resource
+     * will not be created again when the item is bound.</p>
+     *
+     * @param menuRes xml resource of menu, the root tag is {@code menu}, the child tag is {@code item}.
+     */
+    public void inflate(@XmlRes int menuRes) {
+        mMenuResource = MenuResource.obtain(mMenuLayout.getContext(), menuRes);
+        mOrientation = mMenuResource.getOrientation();
+        mSwipeMenuItems.clear();
+    }
+
     public void addMenuItem(SwipeMenuItem item) {
-        mSwipeMenuItems.add(item);
+        getMenuItems().add(item);
     }
 
     public void removeMenuItem(SwipeMenuItem item) {
-        mSwipeMenuItems.remove(item);
+        getMenuItems().remove(item);
     }
 
     public List<SwipeMenuItem> getMenuItems() {
+        if (mMenuResource != null) {
+            mMenuResource.addMenuItems(mMenuLayout.getContext(), mSwipeMenuItems);
+            mMenuResource = null;
+        }
         return mSwipeMenuItems;
     }
 
     public boolean hasMenuItems() {
+        if (mMenuResource != null) return mMenuResource.getItemCount() > 0;
         return !mSwipeMenuItems.isEmpty();
     }
+
+    /**
+     * Get the resource of menu if the menu was inflated from xml and has not been changed, otherwise is 0.
+     */
+    int getMenuRes() {
+        return mMenuResource == null ? 0 : mMenuResource.getMenuRes();
+    }
 }
\ No newline at end of file
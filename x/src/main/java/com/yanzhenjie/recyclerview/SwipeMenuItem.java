@@ -102,7 +102,11 @@ public class SwipeMenuItem {
     }
 
     public SwipeMenuItem setTextColor(@ColorInt int titleColor) {
-        this.titleColor = ColorStateList.valueOf(titleColor);
+        return setTextColor(ColorStateList.valueOf(titleColor));
+    }
+
+    public SwipeMenuItem setTextColor(ColorStateList titleColor) {
+        this.titleColor = titleColor;
         return this;
     }
 
@@ -36,10 +36,15 @@ import androidx.recyclerview.widget.RecyclerView;
 /**
  * Created by Yan Zhenjie on 2016/7/26.
  */
-public class SwipeMenuView extends LinearLayout implements View.OnClickListener {
+public class SwipeMenuView extends LinearLayout {
 
-    private RecyclerView.ViewHolder mViewHolder;
-    private OnItemMenuClickListener mItemClickListener;
+    private Controller mController;
+    private int mDirection;
+    private View.OnClickListener mItemClickListener;
+    private int mMenuRes;
+    private boolean mSnapToItems;
+    private int mFullSwipeItem = -1;
+    private float mFullSwipeThreshold;
 
     public SwipeMenuView(Context context) {
         this(context, null);
@@ -54,12 +59,53 @@ public class SwipeMenuView extends LinearLayout implements View.OnClickListener
         setGravity(Gravity.CENTER_VERTICAL);
     }
 
-    public void createMenu(RecyclerView.ViewHolder viewHolder, SwipeMenu swipeMenu, Controller controller,
-        int direction, OnItemMenuClickListener itemClickListener) {
-        removeAllViews();
+    /**
+     * @deprecated use {@link #createMenu(SwipeMenu, Controller, int, View.OnClickListener)} instead, the listener gets
+     * the adapter position of the holder when a menu item is clicked.
+     */
+    @Deprecated
+    public void createMenu(final RecyclerView.ViewHolder viewHolder, SwipeMenu swipeMenu, final Controller controller,
+        final int direction, final OnItemMenuClickListener itemClickListener) {
+        createMenu(swipeMenu, controller, direction, new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                if (itemClickListener == null) return;
+                SwipeMenuBridge menuBridge = new SwipeMenuBridge(controller, direction, indexOfChild(v));
+                itemClickListener.onItemClick(menuBridge, viewHolder.getAdapterPosition());
+            }
+        });
+    }
+
+    /**
+     * Create the menu items, they are created again only if the menu is changed.
+     *
+     * @param swipeMenu menu.
+     * @param controller the layout of the menu.
+     * @param direction direction of the menu.
+     * @param itemClickListener the listener of all menu items, it finds the clicked item by the view.
+     */
+    public void createMenu(SwipeMenu swipeMenu, Controller controller, int direction,
+        View.OnClickListener itemClickListener) {
+        this.mController = controller;
+        this.mDirection = direction;
+        this.mSnapToItems = swipeMenu.isSnapToItems();
+        this.mFullSwipeItem = swipeMenu.getFullSwipeItem();
+        this.mFullSwipeThreshold = swipeMenu.getFullSwipeThreshold();
+
+        int menuRes = swipeMenu.getMenuRes();
+        if (menuRes != 0 && menuRes == mMenuRes && getChildCount() > 0) {
+            if (mItemClickListener != itemClickListener) {
+                mItemClickListener = itemClickListener;
+                for (int i = 0; i < getChildCount(); i++) {
+                    getChildAt(i).setOnClickListener(itemClickListener);
+                }
+            }
+            return;
+        }
+        mMenuRes = menuRes;
+        mItemClickListener = itemClickListener;
 
-        this.mViewHolder = viewHolder;
-        this.mItemClickListener = itemClickListener;
+        removeAllViews();
 
         List<SwipeMenuItem> items = swipeMenu.getMenuItems();
         for (int i = 0; i < items.size(); i++) {
@@ -73,12 +119,9 @@ public class SwipeMenuView extends LinearLayout implements View.OnClickListener
             parent.setOrientation(VERTICAL);
             parent.setLayoutParams(params);
             ViewCompat.setBackground(parent, item.getBackground());
-            parent.setOnClickListener(this);
+            parent.setOnClickListener(itemClickListener);
             addView(parent);
 
-            SwipeMenuBridge menuBridge = new SwipeMenuBridge(controller, direction, i);
-            parent.setTag(menuBridge);
-
             if (item.getImage() != null) {
                 ImageView iv = createIcon(item);
                 parent.addView(iv);
@@ -91,11 +134,40 @@ public class SwipeMenuView extends LinearLayout implements View.OnClickListener
         }
     }
 
-    @Override
-    public void onClick(View v) {
-        if (mItemClickListener != null) {
-            mItemClickListener.onItemClick((SwipeMenuBridge)v.getTag(), mViewHolder.getAdapterPosition());
-        }
+    /**
+     * The edge of each item is a rest position of menu.
+     */
+    boolean isSnapToItems() {
+        return mSnapToItems;
+    }
+
+    /**
+     * Get the item that is clicked by the full swipe, null means no full swipe.
+     */
+    View getFullSwipeItemView() {
+        if (mFullSwipeItem < 0 || mFullSwipeItem >= getChildCount()) return null;
+        return getChildAt(mFullSwipeItem);
+    }
+
+    float getFullSwipeThreshold() {
+        return mFullSwipeThreshold;
+    }
+
+    /**
+     * Click the item of the full swipe.
+     */
+    void performFullSwipe() {
+        View itemView = getFullSwipeItemView();
+        if (itemView != null && mItemClickListener != null) mItemClickListener.onClick(itemView);
+    }
+
+    Controller getController() {
+        return mController;
+    }
+
+    @SwipeRecyclerView.DirectionMode
+    int getDirection() {
+        return mDirection;
     }
 
     private ImageView createIcon(SwipeMenuItem item) {
@@ -17,7 +17,9 @@ package com.yanzhenjie.recyclerview;
 
 import android.content.Context;
 import android.util.AttributeSet;
+import android.util.SparseBooleanArray;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
@@ -35,6 +37,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 import androidx.annotation.IntDef;
+import androidx.core.view.NestedScrollingParent2;
+import androidx.core.view.NestedScrollingParentHelper;
+import androidx.core.view.ViewCompat;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -43,7 +48,7 @@ import androidx.recyclerview.widget.StaggeredGridLayoutManager;
 /**
  * Created by Yan Zhenjie on 2016/7/27.
  */
-public class SwipeRecyclerView extends RecyclerView {
+public class SwipeRecyclerView extends RecyclerView implements NestedScrollingParent2 {
 
     /**
      * Left menu.
@@ -67,8 +72,9 @@ public class SwipeRecyclerView extends RecyclerView {
     protected SwipeMenuLayout mOldSwipedLayout;
     protected int mOldTouchedPosition = INVALID_POSITION;
 
-    private int mDownX;
-    private int mDownY;
+    private GestureArbiter mGestureArbiter;
+    private boolean mGestureClassified;
+    private boolean mSwipeClaimed;
 
     private boolean allowSwipeDelete;
 
@@ -81,7 +87,10 @@ public class SwipeRecyclerView extends RecyclerView {
     private AdapterWrapper mAdapterWrapper;
 
     private boolean mSwipeItemMenuEnable = true;
-    private List<Integer> mDisableSwipeItemMenuList = new ArrayList<>();
+    private SparseBooleanArray mDisableSwipeItemMenuArray = new SparseBooleanArray();
+
+    private VelocityTracker mVelocityTracker;
+    private final NestedScrollingParentHelper mParentHelper = new NestedScrollingParentHelper(this);
 
     public SwipeRecyclerView(Context context) {
         this(context, null);
@@ -94,6 +103,7 @@ public class SwipeRecyclerView extends RecyclerView {
     public SwipeRecyclerView(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
         mScaleTouchSlop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+        mGestureArbiter = new GestureArbiter(mScaleTouchSlop);
     }
 
     private void initializeItemTouchHelper() {
@@ -157,13 +167,9 @@ public class SwipeRecyclerView extends RecyclerView {
      */
     public void setSwipeItemMenuEnabled(int position, boolean enabled) {
         if (enabled) {
-            if (mDisableSwipeItemMenuList.contains(position)) {
-                mDisableSwipeItemMenuList.remove(Integer.valueOf(position));
-            }
+            mDisableSwipeItemMenuArray.delete(position);
         } else {
-            if (!mDisableSwipeItemMenuList.contains(position)) {
-                mDisableSwipeItemMenuList.add(position);
-            }
+            mDisableSwipeItemMenuArray.put(position, true);
         }
     }
 
@@ -173,7 +179,7 @@ public class SwipeRecyclerView extends RecyclerView {
      * @param position the position of the item.
      */
     public boolean isSwipeItemMenuEnabled(int position) {
-        return !mDisableSwipeItemMenuList.contains(position);
+        return !mDisableSwipeItemMenuArray.get(position, false);
     }
 
     /**
@@ -266,6 +272,10 @@ public class SwipeRecyclerView extends RecyclerView {
 
         @Override
         public void onItemClick(View itemView, int position) {
+            if (position == NO_POSITION) {
+                mListener.onItemClick(itemView, position);
+                return;
+            }
             position -= mRecyclerView.getHeaderCount();
             if (position >= 0) mListener.onItemClick(itemView, position);
         }
@@ -292,6 +302,10 @@ public class SwipeRecyclerView extends RecyclerView {
 
         @Override
         public void onItemLongClick(View itemView, int position) {
+            if (position == NO_POSITION) {
+                mListener.onItemLongClick(itemView, position);
+                return;
+            }
             position -= mRecyclerView.getHeaderCount();
             if (position >= 0) mListener.onItemLongClick(itemView, position);
         }
@@ -327,6 +341,10 @@ public class SwipeRecyclerView extends RecyclerView {
 
         @Override
         public void onItemClick(SwipeMenuBridge menuBridge, int position) {
+            if (position == NO_POSITION) {
+                mListener.onItemClick(menuBridge, position);
+                return;
+            }
             position -= mRecyclerView.getHeaderCount();
             if (position >= 0) {
                 mListener.onItemClick(menuBridge, position);
@@ -364,6 +382,17 @@ public class SwipeRecyclerView extends RecyclerView {
         return mAdapterWrapper.getOriginAdapter();
     }
 
+    /**
+     * Set the pool, a {@link SwipeRecycledViewPool} can be shared with other {@link SwipeRecyclerView}s.
+     */
+    @Override
+    public void setRecycledViewPool(RecycledViewPool pool) {
+        if (pool instanceof SwipeRecycledViewPool) {
+            checkAdapterExist("Cannot set swipe recycled view pool, setAdapter has already been called.");
+        }
+        super.setRecycledViewPool(pool);
+    }
+
     @Override
     public void setAdapter(Adapter adapter) {
         if (mAdapterWrapper != null) {
@@ -375,7 +404,12 @@ public class SwipeRecyclerView extends RecyclerView {
         } else {
             adapter.registerAdapterDataObserver(mAdapterDataObserver);
 
-            mAdapterWrapper = new AdapterWrapper(getContext(), adapter);
+            RecycledViewPool pool = getRecycledViewPool();
+            ViewTypeTable viewTypes = null;
+            if (pool instanceof SwipeRecycledViewPool) {
+                viewTypes = ((SwipeRecycledViewPool)pool).getViewTypeTable();
+            }
+            mAdapterWrapper = new AdapterWrapper(getContext(), adapter, viewTypes);
             mAdapterWrapper.setOnItemClickListener(mOnItemClickListener);
             mAdapterWrapper.setOnItemLongClickListener(mOnItemLongClickListener);
             mAdapterWrapper.setSwipeMenuCreator(mSwipeMenuCreator);
@@ -544,7 +578,7 @@ public class SwipeRecyclerView extends RecyclerView {
      */
     public void smoothOpenMenu(int position, @DirectionMode int direction, int duration) {
         if (mOldSwipedLayout != null) {
-            if (mOldSwipedLayout.isMenuOpen()) {
+            if (mOldSwipedLayout.isSwiped()) {
                 mOldSwipedLayout.smoothCloseMenu();
             }
         }
@@ -569,13 +603,34 @@ public class SwipeRecyclerView extends RecyclerView {
      * Close menu.
      */
     public void smoothCloseMenu() {
-        if (mOldSwipedLayout != null && mOldSwipedLayout.isMenuOpen()) {
+        if (mOldSwipedLayout != null && mOldSwipedLayout.isSwiped()) {
             mOldSwipedLayout.smoothCloseMenu();
         }
     }
 
+    /**
+     * Get the arbiter of current gesture, it is shared with the {@link SwipeMenuLayout}s of items.
+     */
+    GestureArbiter getGestureArbiter() {
+        return mGestureArbiter;
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        // Classify before any child sees the event, the rows read the same decision.
+        mGestureClassified = mGestureArbiter.onTouchEvent(ev);
+        if (ev.getAction() == MotionEvent.ACTION_DOWN) mSwipeClaimed = false;
+        return super.dispatchTouchEvent(ev);
+    }
+
     @Override
     public boolean onInterceptTouchEvent(MotionEvent e) {
+        if (mSwipeClaimed && e.getAction() == MotionEvent.ACTION_MOVE) {
+            // The row owns the gesture, the list does not even start dragging.
+            return false;
+        }
+
+        boolean isSettling = getScrollState() == SCROLL_STATE_SETTLING;
         boolean isIntercepted = super.onInterceptTouchEvent(e);
         if (allowSwipeDelete || mSwipeMenuCreator == null) {
             return isIntercepted;
@@ -595,7 +650,7 @@ public class SwipeRecyclerView extends RecyclerView {
                 }
             }
 
-            boolean touchMenuEnable = mSwipeItemMenuEnable && !mDisableSwipeItemMenuList.contains(touchPosition);
+            boolean touchMenuEnable = mSwipeItemMenuEnable && !mDisableSwipeItemMenuArray.get(touchPosition, false);
             if (touchView != null) {
                 touchView.setSwipeEnable(touchMenuEnable);
             }
@@ -603,12 +658,13 @@ public class SwipeRecyclerView extends RecyclerView {
 
             switch (action) {
                 case MotionEvent.ACTION_DOWN: {
-                    mDownX = x;
-                    mDownY = y;
-
+                    // The list intercepts a down event which stops no fling only for an item touch listener, such as
+                    // a pinned header, the listener keeps the gesture.
+                    boolean isClaimed = isIntercepted && !isSettling;
                     isIntercepted = false;
+                    // The menu resting at a snap point is closed as well as the open menu.
                     if (touchPosition != mOldTouchedPosition && mOldSwipedLayout != null &&
-                        mOldSwipedLayout.isMenuOpen()) {
+                        mOldSwipedLayout.isSwiped()) {
                         mOldSwipedLayout.smoothCloseMenu();
                         isIntercepted = true;
                     }
@@ -616,31 +672,35 @@ public class SwipeRecyclerView extends RecyclerView {
                     if (isIntercepted) {
                         mOldSwipedLayout = null;
                         mOldTouchedPosition = INVALID_POSITION;
-                    } else if (touchView != null) {
+                    } else if (touchView != null && !isClaimed) {
                         mOldSwipedLayout = touchView;
                         mOldTouchedPosition = touchPosition;
                     }
+                    isIntercepted |= isClaimed;
                     break;
                 }
                 // They are sensitive to retain sliding and inertia.
                 case MotionEvent.ACTION_MOVE: {
-                    isIntercepted = handleUnDown(x, y, isIntercepted);
+                    isIntercepted = handleUnDown(isIntercepted);
+                    // Only the move which classifies the gesture decides, the parent is told once.
+                    if (!mGestureClassified || !mGestureArbiter.isHorizontal()) break;
                     if (mOldSwipedLayout == null) break;
-                    ViewParent viewParent = getParent();
-                    if (viewParent == null) break;
 
-                    int disX = mDownX - x;
+                    int disX = mGestureArbiter.getDownX() - x;
                     // 向左滑，显示右侧菜单，或者关闭左侧菜单。
                     boolean showRightCloseLeft = disX > 0 &&
                         (mOldSwipedLayout.hasRightMenu() || mOldSwipedLayout.isLeftCompleteOpen());
                     // 向右滑，显示左侧菜单，或者关闭右侧菜单。
                     boolean showLeftCloseRight = disX < 0 &&
                         (mOldSwipedLayout.hasLeftMenu() || mOldSwipedLayout.isRightCompleteOpen());
-                    viewParent.requestDisallowInterceptTouchEvent(showRightCloseLeft || showLeftCloseRight);
+                    mSwipeClaimed = showRightCloseLeft || showLeftCloseRight;
+                    ViewParent viewParent = getParent();
+                    if (mSwipeClaimed && viewParent != null) viewParent.requestDisallowInterceptTouchEvent(true);
+                    break;
                 }
                 case MotionEvent.ACTION_UP:
                 case MotionEvent.ACTION_CANCEL: {
-                    isIntercepted = handleUnDown(x, y, isIntercepted);
+                    isIntercepted = handleUnDown(isIntercepted);
                     break;
                 }
             }
@@ -648,14 +708,11 @@ public class SwipeRecyclerView extends RecyclerView {
         return isIntercepted;
     }
 
-    private boolean handleUnDown(int x, int y, boolean defaultValue) {
-        int disX = mDownX - x;
-        int disY = mDownY - y;
-
+    private boolean handleUnDown(boolean defaultValue) {
         // swipe
-        if (Math.abs(disX) > mScaleTouchSlop && Math.abs(disX) > Math.abs(disY)) return false;
+        if (mGestureArbiter.isHorizontal()) return false;
         // click
-        if (Math.abs(disY) < mScaleTouchSlop && Math.abs(disX) < mScaleTouchSlop) return false;
+        if (mGestureArbiter.isClick()) return false;
         return defaultValue;
     }
 
@@ -666,7 +723,7 @@ public class SwipeRecyclerView extends RecyclerView {
             case MotionEvent.ACTION_DOWN:
                 break;
             case MotionEvent.ACTION_MOVE:
-                if (mOldSwipedLayout != null && mOldSwipedLayout.isMenuOpen()) {
+                if (mOldSwipedLayout != null && mOldSwipedLayout.isSwiped()) {
                     mOldSwipedLayout.smoothCloseMenu();
                 }
                 break;
@@ -679,20 +736,111 @@ public class SwipeRecyclerView extends RecyclerView {
     }
 
     private View getSwipeMenuView(View itemView) {
-        if (itemView instanceof SwipeMenuLayout) return itemView;
-        List<View> unvisited = new ArrayList<>();
-        unvisited.add(itemView);
-        while (!unvisited.isEmpty()) {
-            View child = unvisited.remove(0);
-            if (!(child instanceof ViewGroup)) { // view
-                continue;
-            }
-            if (child instanceof SwipeMenuLayout) return child;
-            ViewGroup group = (ViewGroup)child;
-            final int childCount = group.getChildCount();
-            for (int i = 0; i < childCount; i++) unvisited.add(group.getChildAt(i));
+        View menuView = findSwipeMenuView(itemView);
+        return menuView == null ? itemView : menuView;
+    }
+
+    /**
+     * It is called for every touch event, so the view tree is searched without allocation.
+     */
+    private View findSwipeMenuView(View view) {
+        if (view instanceof SwipeMenuLayout) return view;
+        if (!(view instanceof ViewGroup)) return null;
+
+        ViewGroup group = (ViewGroup)view;
+        final int childCount = group.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            View menuView = findSwipeMenuView(group.getChildAt(i));
+            if (menuView != null) return menuView;
+        }
+        return null;
+    }
+
+    /**
+     * Only one item can be swiped at a time, so the items share the tracker of the RecyclerView.
+     */
+    VelocityTracker obtainVelocityTracker() {
+        if (mVelocityTracker == null) mVelocityTracker = VelocityTracker.obtain();
+        return mVelocityTracker;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
         }
-        return itemView;
+    }
+
+    // NestedScrollingParent2, the horizontal drags of item menus are passed through to the nested parents of list.
+
+    @Override
+    public boolean onStartNestedScroll(View child, View target, int axes) {
+        return onStartNestedScroll(child, target, axes, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public boolean onStartNestedScroll(View child, View target, int axes, int type) {
+        return target instanceof SwipeMenuLayout && (axes & ViewCompat.SCROLL_AXIS_HORIZONTAL) != 0;
+    }
+
+    @Override
+    public void onNestedScrollAccepted(View child, View target, int axes) {
+        onNestedScrollAccepted(child, target, axes, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public void onNestedScrollAccepted(View child, View target, int axes, int type) {
+        mParentHelper.onNestedScrollAccepted(child, target, axes, type);
+        startNestedScroll(ViewCompat.SCROLL_AXIS_HORIZONTAL, type);
+    }
+
+    @Override
+    public void onStopNestedScroll(View target) {
+        onStopNestedScroll(target, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public void onStopNestedScroll(View target, int type) {
+        mParentHelper.onStopNestedScroll(target, type);
+        stopNestedScroll(type);
+    }
+
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+        onNestedPreScroll(target, dx, dy, consumed, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed, int type) {
+        dispatchNestedPreScroll(dx, dy, consumed, null, type);
+    }
+
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+        onNestedScroll(target, dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed,
+        int type) {
+        dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, null, type);
+    }
+
+    @Override
+    public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+        return dispatchNestedPreFling(velocityX, velocityY);
+    }
+
+    @Override
+    public boolean onNestedFling(View target, float velocityX, float velocityY, boolean consumed) {
+        return dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public int getNestedScrollAxes() {
+        return mParentHelper.getNestedScrollAxes();
     }
 
     private int mScrollState = -1;
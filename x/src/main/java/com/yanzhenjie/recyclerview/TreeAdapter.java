@@ -0,0 +1,346 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import android.view.ViewGroup;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.StaggeredGridLayoutManager;
+
+/**
+ * An adapter which shows a tree of any depth as a list, the visible nodes are the children of the root and the
+ * children of each expanded visible node, in depth-first order. The root itself is not shown.
+ *
+ * <p>Each node keeps the prefix sums of the visible items of its children, so the node of a position, the position of
+ * a node, and the update of expanding or collapsing a node are O(depth * log(children)). Inserting or removing a node
+ * is a structural change of its siblings: it moves the indexes and the prefix sums of the siblings after it, so it is
+ * O(siblings + depth * log(children)), and an inserted node also indexes its own descendants. Each change is notified
+ * by one precise range.</p>
+ */
+public abstract class TreeAdapter<T, VH extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<VH> {
+
+    private TreeNode<T> mRoot;
+    private int[] mCountBuffer = new int[0];
+
+    /**
+     * Set the root of the tree, the root is not shown.
+     */
+    public final void setRoot(TreeNode<T> root) {
+        if (root != null && root != mRoot && (root.mParent != null || root.mAdapterRoot)) {
+            throw new IllegalArgumentException("The root node already belongs to a tree.");
+        }
+        if (mRoot != null) mRoot.mAdapterRoot = false;
+
+        mRoot = root;
+        if (root != null) {
+            root.mExpanded = true;
+            initNode(root);
+            root.mAdapterRoot = true;
+        }
+        notifyDataSetChanged();
+    }
+
+    public final TreeNode<T> getRoot() {
+        return mRoot;
+    }
+
+    /**
+     * Count the visible items of the node and its descendants, it is O(n).
+     */
+    private void initNode(TreeNode<T> node) {
+        List<TreeNode<T>> children = node.mChildren;
+        int childCount = children.size();
+        for (int i = 0; i < childCount; i++) {
+            initNode(children.get(i));
+        }
+
+        if (mCountBuffer.length < childCount) mCountBuffer = new int[childCount];
+        for (int i = 0; i < childCount; i++) {
+            TreeNode<T> child = children.get(i);
+            child.mIndex = i;
+            mCountBuffer[i] = child.mVisibleCount;
+        }
+        node.mChildIndex.build(mCountBuffer, childCount);
+        node.mVisibleCount = node.mExpanded ? 1 + node.mChildIndex.sum() : 1;
+    }
+
+    @Override
+    public final int getItemCount() {
+        return mRoot == null ? 0 : mRoot.mChildIndex.sum();
+    }
+
+    /**
+     * Get the node of the adapter position.
+     */
+    public final TreeNode<T> getNode(int position) {
+        if (position < 0 || position >= getItemCount()) {
+            throw new IllegalStateException("The adapter position is invalid: " + position);
+        }
+
+        TreeNode<T> node = mRoot;
+        while (true) {
+            int index = node.mChildIndex.find(position);
+            position -= node.mChildIndex.prefixSum(index);
+            node = node.mChildren.get(index);
+            if (position == 0) return node;
+            position -= 1;
+        }
+    }
+
+    /**
+     * Get the adapter position of the node.
+     *
+     * @return the position, or {@link RecyclerView#NO_POSITION} if the node is not visible.
+     */
+    public final int getPosition(TreeNode<T> node) {
+        if (node == mRoot) return RecyclerView.NO_POSITION;
+
+        int position = 0;
+        while (node != mRoot) {
+            TreeNode<T> parent = node.mParent;
+            if (parent == null || !parent.mExpanded) return RecyclerView.NO_POSITION;
+
+            position += parent.mChildIndex.prefixSum(node.mIndex);
+            if (parent != mRoot) position += 1;
+            node = parent;
+        }
+        return position;
+    }
+
+    /**
+     * Expand the node, its visible descendants are inserted after it.
+     */
+    public final void expandNode(TreeNode<T> node) {
+        checkNode(node);
+        if (node.mExpanded) return;
+
+        node.mExpanded = true;
+        int itemCount = node.mChildIndex.sum();
+        node.mVisibleCount += itemCount;
+        updateAncestors(node, itemCount);
+
+        int position = getPosition(node);
+        if (position != RecyclerView.NO_POSITION && itemCount > 0) {
+            notifyItemRangeInserted(position + 1, itemCount);
+        }
+    }
+
+    /**
+     * Collapse the node, its visible descendants are removed.
+     */
+    public final void collapseNode(TreeNode<T> node) {
+        checkNode(node);
+        if (node == mRoot) throw new IllegalArgumentException("The root cannot be collapsed.");
+        if (!node.mExpanded) return;
+
+        int itemCount = node.mVisibleCount - 1;
+        node.mExpanded = false;
+        node.mVisibleCount = 1;
+        updateAncestors(node, -itemCount);
+
+        int position = getPosition(node);
+        if (position != RecyclerView.NO_POSITION && itemCount > 0) {
+            notifyItemRangeRemoved(position + 1, itemCount);
+        }
+    }
+
+    /**
+     * Insert a node and its descendants, the node must not belong to a tree. It moves the siblings after the index, so
+     * it is linear in the number of siblings.
+     *
+     * @param parent parent node.
+     * @param index position in the children of the parent.
+     * @param node new node.
+     */
+    public final void insertNode(TreeNode<T> parent, int index, TreeNode<T> node) {
+        checkNode(parent);
+        if (node.mParent != null || node.mAdapterRoot) {
+            throw new IllegalArgumentException("The node already belongs to a tree.");
+        }
+        if (index < 0 || index > parent.mChildren.size()) {
+            throw new IllegalStateException("The child index is invalid: " + index);
+        }
+
+        initNode(node);
+        node.mParent = parent;
+        parent.mChildren.add(index, node);
+        reindexChildren(parent, index);
+        parent.mChildIndex.insert(index, node.mVisibleCount);
+
+        int itemCount = node.mVisibleCount;
+        if (parent.mExpanded) {
+            if (parent != mRoot) parent.mVisibleCount += itemCount;
+            updateAncestors(parent, itemCount);
+        }
+
+        int position = getPosition(node);
+        if (position != RecyclerView.NO_POSITION) notifyItemRangeInserted(position, itemCount);
+    }
+
+    /**
+     * Remove a node and its descendants. It moves the siblings after the node, so it is linear in the number of
+     * siblings.
+     */
+    public final void removeNode(TreeNode<T> node) {
+        checkNode(node);
+        if (node == mRoot) throw new IllegalArgumentException("The root cannot be removed.");
+
+        int position = getPosition(node);
+        int itemCount = node.mVisibleCount;
+
+        TreeNode<T> parent = node.mParent;
+        parent.mChildren.remove(node.mIndex);
+        parent.mChildIndex.remove(node.mIndex);
+        reindexChildren(parent, node.mIndex);
+        node.mParent = null;
+
+        if (parent.mExpanded) {
+            if (parent != mRoot) parent.mVisibleCount -= itemCount;
+            updateAncestors(parent, -itemCount);
+        }
+
+        if (position != RecyclerView.NO_POSITION) notifyItemRangeRemoved(position, itemCount);
+    }
+
+    /**
+     * Notify any registered observers that the node has changed.
+     */
+    public final void notifyNodeChanged(TreeNode<T> node) {
+        int position = getPosition(node);
+        if (position != RecyclerView.NO_POSITION) notifyItemChanged(position);
+    }
+
+    /**
+     * The visible items of the node have changed by the count, update the prefix sums of its ancestors, up to the
+     * first collapsed ancestor.
+     */
+    private void updateAncestors(TreeNode<T> node, int itemCount) {
+        while (node != mRoot) {
+            TreeNode<T> parent = node.mParent;
+            parent.mChildIndex.set(node.mIndex, node.mVisibleCount);
+            if (!parent.mExpanded) return;
+
+            if (parent != mRoot) parent.mVisibleCount += itemCount;
+            node = parent;
+        }
+    }
+
+    private static <T> void reindexChildren(TreeNode<T> parent, int start) {
+        for (int i = start; i < parent.mChildren.size(); i++) {
+            parent.mChildren.get(i).mIndex = i;
+        }
+    }
+
+    private void checkNode(TreeNode<T> node) {
+        TreeNode<T> root = node;
+        while (root.mParent != null) {
+            root = root.mParent;
+        }
+        if (root != mRoot || mRoot == null) {
+            throw new IllegalArgumentException("The node does not belong to this adapter.");
+        }
+    }
+
+    @Override
+    public final int getItemViewType(int position) {
+        TreeNode<T> node = getNode(position);
+        return nodeViewType(node, node.getDepth());
+    }
+
+    /**
+     * Get the view type of the node.
+     *
+     * @param node node of item.
+     * @param depth depth of node, the children of the root are 0.
+     */
+    public int nodeViewType(TreeNode<T> node, int depth) {
+        return 0;
+    }
+
+    @Override
+    public final void onBindViewHolder(@NonNull VH holder, int position, @NonNull List<Object> payloads) {
+        TreeNode<T> node = getNode(position);
+        bindNodeHolder(holder, node, node.getDepth(), payloads);
+    }
+
+    public void bindNodeHolder(@NonNull VH holder, TreeNode<T> node, int depth, @NonNull List<Object> payloads) {
+        bindNodeHolder(holder, node, depth);
+    }
+
+    /**
+     * Called by {@link RecyclerView} to display the node. This method should update the contents of the
+     * {@link RecyclerView.ViewHolder#itemView} to reflect the node.
+     *
+     * @param holder holder.
+     * @param node node of item.
+     * @param depth depth of node, the children of the root are 0.
+     */
+    public abstract void bindNodeHolder(@NonNull VH holder, TreeNode<T> node, int depth);
+
+    @Deprecated
+    @Override
+    public final void onBindViewHolder(@NonNull VH holder, int position) {
+    }
+
+    /**
+     * The item of the node fills the whole row in a grid, the default is the nodes which have children.
+     *
+     * @param node node of item.
+     */
+    public boolean isFullSpan(TreeNode<T> node) {
+        return !node.isLeaf();
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull final RecyclerView recyclerView) {
+        RecyclerView.LayoutManager lm = recyclerView.getLayoutManager();
+        if (lm instanceof GridLayoutManager) {
+            final GridLayoutManager glm = (GridLayoutManager)lm;
+            final GridLayoutManager.SpanSizeLookup originLookup = glm.getSpanSizeLookup();
+
+            glm.setSpanSizeLookup(new GridLayoutManager.SpanSizeLookup() {
+                @Override
+                public int getSpanSize(int position) {
+                    // The positions of the lookup are the positions of the list, which may have header views.
+                    if (isFullSpan(getNode(position - AdapterWrapper.getHeaderCount(recyclerView)))) {
+                        return glm.getSpanCount();
+                    }
+                    if (originLookup != null) return originLookup.getSpanSize(position);
+                    return 1;
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onViewAttachedToWindow(@NonNull VH holder) {
+        int position = holder.getAdapterPosition();
+        if (position == RecyclerView.NO_POSITION) return;
+
+        position -= AdapterWrapper.getHeaderCount(holder.itemView.getParent());
+        if (position >= 0 && position < getItemCount() && isFullSpan(getNode(position))) {
+            ViewGroup.LayoutParams lp = holder.itemView.getLayoutParams();
+            if (lp instanceof StaggeredGridLayoutManager.LayoutParams) {
+                StaggeredGridLayoutManager.LayoutParams p = (StaggeredGridLayoutManager.LayoutParams)lp;
+                p.setFullSpan(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A node of the tree of {@link TreeAdapter}. The tree is built by {@link #addChild(TreeNode)} and
+ * {@link #setExpanded(boolean)} before it is set to the adapter, after that it is changed by the adapter only.
+ *
+ * <p>Each node keeps the number of its visible items and the prefix sums of the visible items of its children, so a
+ * position is found from the root to the node, or from the node to the root.</p>
+ */
+public final class TreeNode<T> {
+
+    private final T mData;
+
+    TreeNode<T> mParent;
+    final List<TreeNode<T>> mChildren = new ArrayList<>();
+    boolean mExpanded;
+
+    /**
+     * The position in the children of the parent.
+     */
+    int mIndex;
+    /**
+     * The number of visible items of this node, itself and the visible items of its children if it is expanded.
+     */
+    int mVisibleCount = 1;
+    /**
+     * The visible items of each child.
+     */
+    final FenwickTree mChildIndex = new FenwickTree();
+    /**
+     * This node is the root of an adapter.
+     */
+    boolean mAdapterRoot;
+
+    public TreeNode(T data) {
+        this.mData = data;
+    }
+
+    public T getData() {
+        return mData;
+    }
+
+    /**
+     * Get the parent node, null if this node is the root.
+     */
+    public TreeNode<T> getParent() {
+        return mParent;
+    }
+
+    public int getChildCount() {
+        return mChildren.size();
+    }
+
+    public TreeNode<T> getChild(int index) {
+        return mChildren.get(index);
+    }
+
+    public boolean isLeaf() {
+        return mChildren.isEmpty();
+    }
+
+    public boolean isExpanded() {
+        return mExpanded;
+    }
+
+    /**
+     * Get the depth of this node, the children of the root are 0.
+     */
+    public int getDepth() {
+        int depth = -1;
+        for (TreeNode<T> node = mParent; node != null; node = node.mParent) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Add a child node, it cannot be called after this node is set to an adapter.
+     *
+     * @return this node.
+     */
+    public TreeNode<T> addChild(TreeNode<T> child) {
+        checkDetached();
+        if (child.mParent != null || child.mAdapterRoot) {
+            throw new IllegalArgumentException("The child node already belongs to a tree.");
+        }
+        child.mParent = this;
+        child.mIndex = mChildren.size();
+        mChildren.add(child);
+        return this;
+    }
+
+    /**
+     * Set the initial expanded state, it cannot be called after this node is set to an adapter.
+     */
+    public void setExpanded(boolean expanded) {
+        checkDetached();
+        this.mExpanded = expanded;
+    }
+
+    boolean isAttached() {
+        TreeNode<T> node = this;
+        while (node.mParent != null) {
+            node = node.mParent;
+        }
+        return node.mAdapterRoot;
+    }
+
+    private void checkDetached() {
+        if (isAttached()) {
+            throw new IllegalStateException("The node belongs to an adapter, change it by the adapter.");
+        }
+    }
+}
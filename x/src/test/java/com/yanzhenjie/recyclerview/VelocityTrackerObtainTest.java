@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 Zhenjie Yan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yanzhenjie.recyclerview;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowVelocityTracker;
+
+import androidx.annotation.NonNull;
+import androidx.core.view.ViewCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the swipes of the item menus share the velocity tracker of the list, no tracker is obtained once the
+ * first gesture has been handled.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, shadows = VelocityTrackerObtainTest.CountingVelocityTracker.class)
+public class VelocityTrackerObtainTest {
+
+    private static final int ITEM_HEIGHT = 100;
+    private static final int MOVE_STEPS = 10;
+
+    private SwipeRecyclerView mRecyclerView;
+    private long mEventTime;
+
+    @Before
+    public void setUp() {
+        CountingVelocityTracker.sObtainCount = 0;
+
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        mRecyclerView = new SwipeRecyclerView(activity);
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(activity));
+        mRecyclerView.setSwipeMenuCreator(new SwipeMenuCreator() {
+            @Override
+            public void onCreateMenu(SwipeMenu leftMenu, SwipeMenu rightMenu, int position) {
+                SwipeMenuItem deleteItem = new SwipeMenuItem(mRecyclerView.getContext()).setText("Delete")
+                    .setWidth(200)
+                    .setHeight(ViewGroup.LayoutParams.MATCH_PARENT);
+                rightMenu.addMenuItem(deleteItem);
+            }
+        });
+        mRecyclerView.setAdapter(new TextAdapter());
+        activity.setContentView(mRecyclerView);
+        ShadowLooper.idleMainLooper();
+
+        mRecyclerView.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+            View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.EXACTLY));
+        mRecyclerView.layout(0, 0, 480, 800);
+        mEventTime = SystemClock.uptimeMillis();
+    }
+
+    @Test
+    public void swipesDoNotObtainTrackers() {
+        assertTrue(ViewCompat.isAttachedToWindow(mRecyclerView));
+        assertTrue(mRecyclerView.getChildAt(0) instanceof SwipeMenuLayout);
+        SwipeMenuLayout itemView = (SwipeMenuLayout)mRecyclerView.getChildAt(0);
+
+        // The first gesture obtains the trackers of the list.
+        swipe(400, 100);
+        assertTrue(itemView.isSwiped());
+        int obtainCount = CountingVelocityTracker.sObtainCount;
+        assertTrue(obtainCount > 0);
+
+        for (int i = 0; i < 10; i++) {
+            swipe(100, 400);
+            swipe(400, 100);
+        }
+        assertTrue(itemView.isSwiped());
+        assertEquals(obtainCount, CountingVelocityTracker.sObtainCount);
+    }
+
+    /**
+     * Drag the first item horizontally, the pointer moves in steps and is released at the end.
+     */
+    private void swipe(int fromX, int toX) {
+        int y = ITEM_HEIGHT / 2;
+        long downTime = mEventTime;
+        dispatch(downTime, MotionEvent.ACTION_DOWN, fromX, y);
+        for (int i = 1; i <= MOVE_STEPS; i++) {
+            dispatch(downTime, MotionEvent.ACTION_MOVE, fromX + (toX - fromX) * i / MOVE_STEPS, y);
+        }
+        dispatch(downTime, MotionEvent.ACTION_UP, toX, y);
+        mEventTime += 1000;
+    }
+
+    private void dispatch(long downTime, int action, int x, int y) {
+        mEventTime += 16;
+        MotionEvent event = MotionEvent.obtain(downTime, mEventTime, action, x, y, 0);
+        mRecyclerView.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    /**
+     * Counts the trackers which are obtained, recycled trackers are reused by the pool of the framework and counted
+     * again.
+     */
+    @Implements(VelocityTracker.class)
+    public static class CountingVelocityTracker extends ShadowVelocityTracker {
+
+        static int sObtainCount;
+
+        @Implementation
+        protected static VelocityTracker obtain() {
+            sObtainCount++;
+            return Shadow.directlyOn(VelocityTracker.class, "obtain");
+        }
+    }
+
+    private static class TextAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            TextView textView = new TextView(parent.getContext());
+            textView.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+            return new RecyclerView.ViewHolder(textView) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+            ((TextView)holder.itemView).setText("Item " + position);
+        }
+
+        @Override
+        public int getItemCount() {
+            return 20;
+        }
+    }
+}
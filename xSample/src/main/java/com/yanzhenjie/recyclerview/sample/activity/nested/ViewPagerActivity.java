@@ -19,6 +19,7 @@ import android.os.Bundle;
 import android.view.MenuItem;
 import android.view.View;
 
+import com.yanzhenjie.recyclerview.SwipeRecycledViewPool;
 import com.yanzhenjie.recyclerview.sample.R;
 import com.yanzhenjie.recyclerview.sample.fragment.MenuFragment;
 
@@ -45,6 +46,10 @@ public class ViewPagerActivity extends AppCompatActivity {
 
     private ActionBar mActionBar;
     private ViewPager mViewPager;
+    /**
+     * 所有页面的列表共用的缓存池，切换页面时不用重新创建Item。
+     */
+    private SwipeRecycledViewPool mRecycledViewPool = new SwipeRecycledViewPool();
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -76,6 +81,10 @@ public class ViewPagerActivity extends AppCompatActivity {
         mPageChangeListener.onPageSelected(0);
     }
 
+    public SwipeRecycledViewPool getRecycledViewPool() {
+        return mRecycledViewPool;
+    }
+
     /**
      * Button点击监听。
      */
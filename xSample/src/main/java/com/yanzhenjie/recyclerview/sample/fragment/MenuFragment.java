@@ -29,6 +29,7 @@ import com.yanzhenjie.recyclerview.SwipeMenuCreator;
 import com.yanzhenjie.recyclerview.SwipeMenuItem;
 import com.yanzhenjie.recyclerview.SwipeRecyclerView;
 import com.yanzhenjie.recyclerview.sample.R;
+import com.yanzhenjie.recyclerview.sample.activity.nested.ViewPagerActivity;
 import com.yanzhenjie.recyclerview.sample.adapter.MainAdapter;
 import com.yanzhenjie.recyclerview.widget.DefaultItemDecoration;
 
@@ -74,6 +75,10 @@ public class MenuFragment extends Fragment {
         mRecyclerView.setOnItemClickListener(mItemClickListener);
         mRecyclerView.setSwipeMenuCreator(mSwipeMenuCreator);
         mRecyclerView.setOnItemMenuClickListener(mItemMenuClickListener);
+        if (getActivity() instanceof ViewPagerActivity) {
+            // 必须在setAdapter()之前设置。
+            mRecyclerView.setRecycledViewPool(((ViewPagerActivity)getActivity()).getRecycledViewPool());
+        }
 
         MainAdapter menuAdapter = new MainAdapter(getContext());
         mRecyclerView.setAdapter(menuAdapter);